@@ -30,6 +30,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Source ast) {
 
+        Events.Analyze event = new Events.Analyze();
+        event.begin();
         boolean main = false;
 
         for ( Ast.Global global : ast.getGlobals() ) {
@@ -60,6 +62,13 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         }
 
+        if ( event.shouldCommit() ) {
+
+            event.nodes = Nodes.count(ast);
+            event.commit();
+
+        }
+
         return null;
 
     }
@@ -76,12 +85,12 @@ public final class Analyzer implements Ast.Visitor<Void> {
             Environment.Type tyoe = Environment.getType(ast.getTypeName());
 
 
-            scope.defineVariable(name, name, tyoe,true, Environment.NIL);
+            scope.defineVariable(name, name, tyoe, ast.getMutable(), Environment.NIL);
 
         }
         else {
 
-            scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getTypeName()), true, Environment.NIL);
+            scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getTypeName()), ast.getMutable(), Environment.NIL);
 
         }
 
@@ -105,7 +114,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
 
         List<Environment.Type> pTypes = new ArrayList<>();
-        for ( int a = 0; a < pTypes.size(); a++ ) {
+        for ( int a = 0; a < ast.getParameterTypeNames().size(); a++ ) {
 
             pTypes.add(Environment.getType(ast.getParameterTypeNames().get(a)));
 
@@ -125,32 +134,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
             }
 
-            if ( !ast.getStatements().isEmpty() ) {
-
-                for ( Ast.Statement statement : ast.getStatements() ) {
-
-                    try {
-
-                        scope = new Scope(scope);
-                        visit(statement);
-
-                    }
-                    finally {
-
-                        scope = scope.getParent();
-                    }
-
-                }
-
-            }
-
-            if ( !ast.getParameters().isEmpty() ) {
-
-                for ( int a = 0; a < ast.getParameters().size(); a++ ) {
-
-                    scope.defineVariable(ast.getParameters().get(a), ast.getParameters().get(a), pTypes.get(a), true, Environment.NIL);
+            for ( Ast.Statement statement : ast.getStatements() ) {
 
-                }
+                visit(statement);
 
             }
 
@@ -265,35 +251,37 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
         else {
 
-            for ( Ast.Statement statement : ast.getThenStatements() ) {
+            try {
+
+                scope = new Scope(scope);
 
-                try {
+                for ( Ast.Statement statement : ast.getThenStatements() ) {
 
-                    scope = new Scope(scope);
                     visit(statement);
 
                 }
-                finally {
 
-                    scope = scope.getParent();
+            }
+            finally {
 
-                }
+                scope = scope.getParent();
 
             }
 
-            for ( Ast.Statement statement : ast.getElseStatements() ) {
+            try {
+
+                scope = new Scope(scope);
 
-                try {
+                for ( Ast.Statement statement : ast.getElseStatements() ) {
 
-                    scope = new Scope(scope);
                     visit(statement);
 
                 }
-                finally {
 
-                    scope = scope.getParent();
+            }
+            finally {
 
-                }
+                scope = scope.getParent();
 
             }
 
@@ -11,6 +11,22 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    private int index = -1;
+
+    /**
+     * Returns the index in the source of the first token of this node, or -1
+     * if it is not known. The {@link Parser} records it for functions and
+     * statements, which the {@link Profiler} and {@link InstrumentedInterpreter}
+     * report.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public static final class Source extends Ast {
 
         private final List<Global> globals;
@@ -53,6 +69,7 @@ public abstract class Ast {
         private final boolean mutable;
         private final Optional<Ast.Expression> value;
         private Environment.Variable variable = null;
+        private int slot = -1;
 
         public Global(String name, boolean mutable, Optional<Expression> value) {
             this(name, "Any", mutable, value);
@@ -93,6 +110,18 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        /**
+         * Returns the index of this global in the global frame, or -1 if the
+         * AST has not been resolved (see {@link Resolver}).
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
 
         @Override
         public boolean equals(Object obj) {
@@ -125,6 +154,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Statement> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
         
         public Function(String name, List<String> parameters, List<Statement> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -173,6 +203,19 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots needed by this function's frame, or -1
+         * if the AST has not been resolved (see {@link Resolver}). Parameters
+         * occupy the first slots, in order.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
 
         @Override
         public boolean equals(Object obj) {
@@ -235,6 +278,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private Optional<Ast.Expression> value;
             private Environment.Variable variable = null;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Ast.Expression> value) {
                 this(name, Optional.empty(), value);
@@ -268,6 +312,18 @@ public abstract class Ast {
             public void setVariable(Environment.Variable variable) {
                 this.variable = variable;
             }
+
+            /**
+             * Returns the slot of the declared variable in the enclosing
+             * function's frame, or -1 if the AST has not been resolved.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
             
             
             @Override
@@ -658,6 +714,8 @@ public abstract class Ast {
             private final Optional<Ast.Expression> offset;
             private final String name;
             private Environment.Variable variable = null;
+            private int depth = -1;
+            private int slot = -1;
 
             public Access(Optional<Ast.Expression> offset, String name) {
                 this.offset = offset;
@@ -683,6 +741,28 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the number of frames between this access and the frame
+             * holding the variable: 0 for the enclosing function's frame and 1
+             * for the global frame, or -1 if the AST has not been resolved.
+             */
+            public int getDepth() {
+                return depth;
+            }
+
+            /**
+             * Returns the index of the variable within its frame, or -1 if the
+             * AST has not been resolved.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int depth, int slot) {
+                this.depth = depth;
+                this.slot = slot;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
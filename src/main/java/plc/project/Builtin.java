@@ -0,0 +1,21 @@
+package plc.project;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static method to be defined as a PLC function by
+ * {@link Builtins#register(Scope, Class)}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Builtin {
+
+    /**
+     * The name of the PLC function, which defaults to the method's name.
+     */
+    String value() default "";
+
+}
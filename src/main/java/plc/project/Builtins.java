@@ -0,0 +1,164 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Defines the {@link Builtin} static methods of a Java class as PLC functions.
+ *
+ * Each method is bound through a {@link MethodHandle} adapted once, when it is
+ * registered, to take and return {@link Environment.PlcObject}s: parameters
+ * are unwrapped with {@code getValue()} and cast to the declared type, and
+ * results are wrapped with {@link Environment#create(Object)} ({@code void}
+ * methods return {@code NIL}). Methods with up to four parameters are called
+ * directly with their arguments, others through the argument list.
+ */
+public final class Builtins {
+
+    private static final Set<Class<?>> TYPES = Set.of(
+            Object.class, BigInteger.class, BigDecimal.class, String.class,
+            Character.class, char.class, Boolean.class, boolean.class, List.class
+    );
+
+    private static final MethodHandle GET_VALUE;
+    private static final MethodHandle CREATE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            GET_VALUE = lookup.findVirtual(Environment.PlcObject.class, "getValue", MethodType.methodType(Object.class));
+            CREATE = lookup.findStatic(Environment.class, "create", MethodType.methodType(Environment.PlcObject.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Builtins() {}
+
+    /**
+     * Defines every {@link Builtin} method of {@code library} in {@code scope}.
+     * The methods must be static, and their parameter and return types either
+     * {@link Environment.PlcObject} or a type PLC values are held as.
+     */
+    public static void register(Scope scope, Class<?> library) {
+        for (Method method : library.getDeclaredMethods()) {
+            Builtin builtin = method.getAnnotation(Builtin.class);
+            if (builtin != null) {
+                String name = builtin.value().isEmpty() ? method.getName() : builtin.value();
+                define(scope, name, adapt(method));
+            }
+        }
+    }
+
+    /**
+     * Returns a handle to {@code method} of type {@code (PlcObject...)PlcObject}.
+     */
+    private static MethodHandle adapt(Method method) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("The builtin " + method + " is not static.");
+        }
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("The builtin " + method + " is not accessible.", e);
+        }
+        Class<?>[] parameters = method.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] != Environment.PlcObject.class) {
+                if (!TYPES.contains(parameters[i])) {
+                    throw new IllegalArgumentException("The builtin " + method + " has an unsupported parameter type " + parameters[i].getName() + ".");
+                }
+                handle = MethodHandles.filterArguments(handle, i, GET_VALUE.asType(MethodType.methodType(parameters[i], Environment.PlcObject.class)));
+            }
+        }
+        Class<?> result = method.getReturnType();
+        if (result == void.class) {
+            handle = MethodHandles.filterReturnValue(handle, MethodHandles.constant(Environment.PlcObject.class, Environment.NIL));
+        } else if (result != Environment.PlcObject.class) {
+            if (!TYPES.contains(result)) {
+                throw new IllegalArgumentException("The builtin " + method + " has an unsupported return type " + result.getName() + ".");
+            }
+            handle = MethodHandles.filterReturnValue(handle.asType(handle.type().changeReturnType(Object.class)), CREATE);
+        }
+        return handle;
+    }
+
+    private static void define(Scope scope, String name, MethodHandle handle) {
+        switch (handle.type().parameterCount()) {
+            case 0:
+                scope.defineFunction(name, () -> {
+                    try {
+                        return (Environment.PlcObject) handle.invokeExact();
+                    } catch (Throwable t) {
+                        throw rethrow(t);
+                    }
+                });
+                break;
+            case 1:
+                scope.defineFunction(name, first -> {
+                    try {
+                        return (Environment.PlcObject) handle.invokeExact(first);
+                    } catch (Throwable t) {
+                        throw rethrow(t);
+                    }
+                });
+                break;
+            case 2:
+                scope.defineFunction(name, (first, second) -> {
+                    try {
+                        return (Environment.PlcObject) handle.invokeExact(first, second);
+                    } catch (Throwable t) {
+                        throw rethrow(t);
+                    }
+                });
+                break;
+            case 3:
+                scope.defineFunction(name, (first, second, third) -> {
+                    try {
+                        return (Environment.PlcObject) handle.invokeExact(first, second, third);
+                    } catch (Throwable t) {
+                        throw rethrow(t);
+                    }
+                });
+                break;
+            case 4:
+                scope.defineFunction(name, (first, second, third, fourth) -> {
+                    try {
+                        return (Environment.PlcObject) handle.invokeExact(first, second, third, fourth);
+                    } catch (Throwable t) {
+                        throw rethrow(t);
+                    }
+                });
+                break;
+            default:
+                int arity = handle.type().parameterCount();
+                MethodHandle spread = handle.asSpreader(Environment.PlcObject[].class, arity);
+                scope.defineFunction(name, arity, args -> {
+                    try {
+                        return (Environment.PlcObject) spread.invokeExact(args.toArray(new Environment.PlcObject[0]));
+                    } catch (Throwable t) {
+                        throw rethrow(t);
+                    }
+                });
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new RuntimeException(t);
+    }
+
+}
@@ -0,0 +1,158 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Replaces {@link Ast.Expression.Binary} and {@link Ast.Expression.Group}
+ * expressions whose operands are all literals, as well as references to
+ * constant ({@code VAL}) globals, with a single {@link Ast.Expression.Literal}.
+ * Values are computed by {@link Operators}, exactly as the {@link Interpreter}
+ * would compute them at runtime.
+ *
+ * An expression is left untouched if evaluating it would fail (e.g. division
+ * by zero), so the error still happens at runtime, or if the result is an
+ * Integer outside the range the {@link Analyzer} accepts for literals. The
+ * {@code ^} operator is never folded since the {@link Generator} emits it as
+ * {@code Math.pow}.
+ */
+public final class ConstantFolder extends Rewriter {
+
+    private final Map<Environment.Variable, Ast.Expression.Literal> constants = new IdentityHashMap<>();
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+
+        constants.clear();
+        return super.visit(ast);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Global ast) {
+
+        Ast.Global global = (Ast.Global) super.visit(ast);
+
+        if ( !global.getMutable() && global.getValue().isPresent() && global.getValue().get() instanceof Ast.Expression.Literal ) {
+
+            constants.put(global.getVariable(), (Ast.Expression.Literal) global.getValue().get());
+
+        }
+
+        return global;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Assignment ast) {
+
+        Ast.Expression value = rewrite(ast.getValue());
+
+        if ( value == ast.getValue() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.Assignment(ast.getReceiver(), value);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Group ast) {
+
+        Ast.Expression.Group group = (Ast.Expression.Group) super.visit(ast);
+
+        if ( group.getExpression() instanceof Ast.Expression.Literal ) {
+
+            return literal(((Ast.Expression.Literal) group.getExpression()).getLiteral(), group.getType());
+
+        }
+
+        return group;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Binary ast) {
+
+        Ast.Expression.Binary binary = (Ast.Expression.Binary) super.visit(ast);
+
+        if ( !(binary.getLeft() instanceof Ast.Expression.Literal) || !(binary.getRight() instanceof Ast.Expression.Literal) ) {
+
+            return binary;
+
+        }
+
+        Object LHS = ((Ast.Expression.Literal) binary.getLeft()).getLiteral();
+        Object RHS = ((Ast.Expression.Literal) binary.getRight()).getLiteral();
+        String operator = binary.getOperator();
+
+        if ( LHS == null || RHS == null || operator.equals("^") ) {
+
+            return binary;
+
+        }
+
+        Object result;
+
+        try {
+
+            if ( operator.equals("&&") || operator.equals("||") ) {
+
+                if ( !(LHS instanceof Boolean) || !(RHS instanceof Boolean) ) {
+
+                    return binary;
+
+                }
+
+                result = operator.equals("&&") ? (Boolean) LHS && (Boolean) RHS : (Boolean) LHS || (Boolean) RHS;
+
+            }
+            else {
+
+                result = Operators.apply(operator, LHS, RHS);
+
+            }
+
+        }
+        catch ( RuntimeException e ) {
+
+            return binary;
+
+        }
+
+        if ( result instanceof BigInteger && ((BigInteger) result).bitLength() >= Integer.SIZE ) {
+
+            return binary;
+
+        }
+
+        return literal(result, binary.getType());
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Access ast) {
+
+        if ( ast.getOffset().isEmpty() && constants.containsKey(ast.getVariable()) ) {
+
+            Ast.Expression.Literal constant = constants.get(ast.getVariable());
+            return literal(constant.getLiteral(), constant.getType());
+
+        }
+
+        return super.visit(ast);
+
+    }
+
+    private static Ast.Expression.Literal literal(Object value, Environment.Type type) {
+
+        Ast.Expression.Literal literal = new Ast.Expression.Literal(value);
+        literal.setType(type);
+        return literal;
+
+    }
+
+}
@@ -0,0 +1,297 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes code that can never execute from an analyzed source:
+ *
+ * <ul>
+ *     <li>statements following a {@code RETURN} (or an {@code IF} whose
+ *     branches both return) in the same block,</li>
+ *     <li>the untaken branch of an {@code IF} with a literal condition, and
+ *     {@code WHILE} loops with a literal {@code FALSE} condition,</li>
+ *     <li>functions that are not reachable through calls from {@code main}
+ *     or from a global initializer.</li>
+ * </ul>
+ *
+ * Run it after the {@link ConstantFolder} to also catch conditions that fold
+ * to a literal. The counters describe the last {@link #apply} call.
+ */
+public final class DeadCodeEliminator extends Rewriter {
+
+    private int totalStatements = 0;
+    private int removedStatements = 0;
+    private final List<String> removedFunctions = new ArrayList<>();
+
+    public int getTotalStatements() {
+        return totalStatements;
+    }
+
+    public int getRemovedStatements() {
+        return removedStatements;
+    }
+
+    /**
+     * Returns the {@code name/arity} of each function that was removed.
+     */
+    public List<String> getRemovedFunctions() {
+        return Collections.unmodifiableList(removedFunctions);
+    }
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+
+        totalStatements = 0;
+        removedStatements = 0;
+        removedFunctions.clear();
+
+        Map<String, Ast.Function> functions = new LinkedHashMap<>();
+
+        for ( Ast.Function function : ast.getFunctions() ) {
+
+            functions.put(function.getName() + "/" + function.getParameters().size(), function);
+            totalStatements += count(function.getStatements());
+
+        }
+
+        if ( !functions.containsKey("main/0") ) {
+
+            return super.visit(ast);
+
+        }
+
+        Set<String> reachable = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add("main/0");
+
+        for ( Ast.Global global : ast.getGlobals() ) {
+
+            global.getValue().ifPresent(value -> pending.addAll(calls(value)));
+
+        }
+
+        while ( !pending.isEmpty() ) {
+
+            String name = pending.pop();
+
+            if ( functions.containsKey(name) && reachable.add(name) ) {
+
+                for ( Ast.Statement statement : functions.get(name).getStatements() ) {
+
+                    pending.addAll(calls(statement));
+
+                }
+
+            }
+
+        }
+
+        List<Ast.Function> kept = new ArrayList<>();
+        boolean changed = false;
+
+        for ( Map.Entry<String, Ast.Function> entry : functions.entrySet() ) {
+
+            if ( reachable.contains(entry.getKey()) ) {
+
+                Ast.Function function = (Ast.Function) visit(entry.getValue());
+                changed |= function != entry.getValue();
+                kept.add(function);
+
+            }
+            else {
+
+                removedFunctions.add(entry.getKey());
+                removedStatements += count(entry.getValue().getStatements());
+
+            }
+
+        }
+
+        List<Ast.Global> globals = rewriteAll(ast.getGlobals());
+
+        if ( !changed && removedFunctions.isEmpty() && globals == ast.getGlobals() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Source(globals, kept);
+
+    }
+
+    @Override
+    protected List<Ast.Statement> rewriteStatements(List<Ast.Statement> statements) {
+
+        List<Ast.Statement> rewritten = new ArrayList<>();
+        boolean changed = false;
+
+        for ( int a = 0; a < statements.size(); a++ ) {
+
+            Ast.Statement statement = statements.get(a);
+            List<Ast.Statement> replacement = eliminate(statement);
+
+            if ( replacement.size() != 1 || replacement.get(0) != statement ) {
+
+                changed = true;
+
+            }
+
+            rewritten.addAll(replacement);
+
+            if ( !replacement.isEmpty() && terminates(replacement.get(replacement.size() - 1)) && a < statements.size() - 1 ) {
+
+                removedStatements += count(statements.subList(a + 1, statements.size()));
+                changed = true;
+                break;
+
+            }
+
+        }
+
+        return changed ? rewritten : statements;
+
+    }
+
+    /**
+     * Returns the statements that replace {@code statement} in its block.
+     */
+    private List<Ast.Statement> eliminate(Ast.Statement statement) {
+
+        if ( statement instanceof Ast.Statement.If && ((Ast.Statement.If) statement).getCondition() instanceof Ast.Expression.Literal ) {
+
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            boolean condition = Boolean.TRUE.equals(((Ast.Expression.Literal) ast.getCondition()).getLiteral());
+            List<Ast.Statement> taken = condition ? ast.getThenStatements() : ast.getElseStatements();
+
+            removedStatements += count(condition ? ast.getElseStatements() : ast.getThenStatements());
+
+            if ( taken.stream().anyMatch(s -> s instanceof Ast.Statement.Declaration) ) {
+
+                // the branch's declarations must stay in their own scope
+                if ( condition && ast.getElseStatements().isEmpty() ) {
+
+                    return Collections.singletonList((Ast.Statement) visit(ast));
+
+                }
+
+                Ast.Expression.Literal always = new Ast.Expression.Literal(Boolean.TRUE);
+                always.setType(Environment.Type.BOOLEAN);
+                return Collections.singletonList(new Ast.Statement.If(always, rewriteStatements(taken), Collections.emptyList()));
+
+            }
+
+            removedStatements++;
+            return rewriteStatements(taken);
+
+        }
+        else if ( statement instanceof Ast.Statement.While && Boolean.FALSE.equals(literal(((Ast.Statement.While) statement).getCondition())) ) {
+
+            removedStatements += 1 + count(((Ast.Statement.While) statement).getStatements());
+            return Collections.emptyList();
+
+        }
+
+        return Collections.singletonList((Ast.Statement) visit(statement));
+
+    }
+
+    private static Object literal(Ast.Expression expression) {
+        return expression instanceof Ast.Expression.Literal ? ((Ast.Expression.Literal) expression).getLiteral() : null;
+    }
+
+    /**
+     * Returns true if executing {@code statement} always ends in a {@code RETURN}.
+     */
+    private static boolean terminates(Ast.Statement statement) {
+
+        if ( statement instanceof Ast.Statement.Return ) {
+
+            return true;
+
+        }
+        else if ( statement instanceof Ast.Statement.If ) {
+
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            return terminates(ast.getThenStatements()) && terminates(ast.getElseStatements());
+
+        }
+
+        return false;
+
+    }
+
+    private static boolean terminates(List<Ast.Statement> statements) {
+        return !statements.isEmpty() && terminates(statements.get(statements.size() - 1));
+    }
+
+    /**
+     * Counts statements, including those nested in blocks.
+     */
+    private static int count(List<? extends Ast.Statement> statements) {
+
+        int count = 0;
+
+        for ( Ast.Statement statement : statements ) {
+
+            count++;
+
+            if ( statement instanceof Ast.Statement.If ) {
+
+                count += count(((Ast.Statement.If) statement).getThenStatements());
+                count += count(((Ast.Statement.If) statement).getElseStatements());
+
+            }
+            else if ( statement instanceof Ast.Statement.While ) {
+
+                count += count(((Ast.Statement.While) statement).getStatements());
+
+            }
+            else if ( statement instanceof Ast.Statement.Switch ) {
+
+                count += count(((Ast.Statement.Switch) statement).getCases());
+
+            }
+            else if ( statement instanceof Ast.Statement.Case ) {
+
+                count += count(((Ast.Statement.Case) statement).getStatements());
+
+            }
+
+        }
+
+        return count;
+
+    }
+
+    /**
+     * Returns the {@code name/arity} of every function called within {@code ast}.
+     */
+    private static List<String> calls(Ast ast) {
+
+        List<String> calls = new ArrayList<>();
+
+        new Rewriter() {
+
+            @Override
+            public Ast visit(Ast.Expression.Function ast) {
+
+                calls.add(ast.getName() + "/" + ast.getArguments().size());
+                return super.visit(ast);
+
+            }
+
+        }.visit(ast);
+
+        return calls;
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package plc.project;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -8,8 +9,52 @@ import java.util.Map;
 
 public final class Environment {
 
+    /**
+     * Shared by every value created below. Values never define members in their
+     * scope, so one empty scope and one {@code Unknown} type serve all of them.
+     */
+    private static final Scope VALUES = new Scope(null);
+    private static final Type UNKNOWN = new Type("Unknown", "Unknown", VALUES);
+
+    public static final PlcObject TRUE = new PlcObject(UNKNOWN, VALUES, Boolean.TRUE);
+    public static final PlcObject FALSE = new PlcObject(UNKNOWN, VALUES, Boolean.FALSE);
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final PlcObject[] INTEGERS = new PlcObject[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < INTEGERS.length; i++) {
+            INTEGERS[i] = new PlcObject(UNKNOWN, VALUES, BigInteger.valueOf(CACHE_LOW + i));
+        }
+    }
+
+    /**
+     * Returns a value holding {@code value}. Booleans and small Integers are
+     * shared canonical instances, since values are never mutated; anything else
+     * is a single new object.
+     */
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+            long integer = ((BigInteger) value).longValue();
+            if (integer >= CACHE_LOW && integer <= CACHE_HIGH) {
+                return INTEGERS[(int) integer - CACHE_LOW];
+            }
+        }
+        return new PlcObject(UNKNOWN, VALUES, value);
+    }
+
+    /**
+     * Creates an Integer value held as a {@code long}. The equivalent
+     * {@link BigInteger} is only built if {@link PlcObject#getValue()} is called.
+     */
+    public static PlcObject createInteger(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return INTEGERS[(int) value - CACHE_LOW];
+        }
+        return new PlcObject(UNKNOWN, VALUES, null, value, true);
     }
 
     public static final PlcObject NIL = new PlcObject(Type.NIL, new Scope(null), new Object() {
@@ -89,20 +134,33 @@ public final class Environment {
 
     }
 
+    /**
+     * A runtime value. Integers that fit in a {@code long} are also kept as a
+     * primitive so arithmetic can avoid {@link BigInteger} (see
+     * {@link #isLong()}); the {@link BigInteger} itself is created lazily.
+     */
     public static final class PlcObject {
 
         private final Type type;
         private final Scope scope;
-        private final Object value;
+        private Object value;
+        private final long integer;
+        private final boolean isLong;
 
         public PlcObject(Scope scope, Object value) {
             this(new Type("Unknown", "Unknown", scope), scope, value);
         }
 
         public PlcObject(Type type, Scope scope, Object value) {
+            this(type, scope, value, value instanceof BigInteger ? ((BigInteger) value).longValue() : 0, value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE);
+        }
+
+        private PlcObject(Type type, Scope scope, Object value, long integer, boolean isLong) {
             this.type = type;
             this.scope = scope;
             this.value = value;
+            this.integer = integer;
+            this.isLong = isLong;
         }
 
         public Type getType() {
@@ -110,15 +168,30 @@ public final class Environment {
         }
 
         public Object getValue() {
+            if (value == null && isLong) {
+                value = BigInteger.valueOf(integer);
+            }
             return value;
         }
 
+        /**
+         * Returns true if this is an Integer whose value fits in a {@code long},
+         * which is then available from {@link #getLong()}.
+         */
+        public boolean isLong() {
+            return isLong;
+        }
+
+        public long getLong() {
+            return integer;
+        }
+
         @Override
         public String toString() {
             return "Object{" +
                     "type=" + type +
                     ", scope=" + scope +
-                    ", value=" + value +
+                    ", value=" + getValue() +
                     '}';
         }
 
@@ -190,13 +263,49 @@ public final class Environment {
 
     }
 
+    /**
+     * A function, invoked either with a list of arguments or, for up to four
+     * arguments, with the arguments directly. Functions defined with one of the
+     * arity-specific interfaces ({@link Nullary} to {@link Quaternary}) are
+     * called without building a list; others receive the arguments as one.
+     */
     public static final class Function {
 
+        @FunctionalInterface
+        public interface Nullary {
+            PlcObject invoke();
+        }
+
+        @FunctionalInterface
+        public interface Unary {
+            PlcObject invoke(PlcObject first);
+        }
+
+        @FunctionalInterface
+        public interface Binary {
+            PlcObject invoke(PlcObject first, PlcObject second);
+        }
+
+        @FunctionalInterface
+        public interface Ternary {
+            PlcObject invoke(PlcObject first, PlcObject second, PlcObject third);
+        }
+
+        @FunctionalInterface
+        public interface Quaternary {
+            PlcObject invoke(PlcObject first, PlcObject second, PlcObject third, PlcObject fourth);
+        }
+
         private final String name;
         private final String jvmName;
         private final List<Type> parameterTypes;
         private final Type returnType;
-        private final java.util.function.Function<List<PlcObject>, PlcObject> function;
+        private volatile java.util.function.Function<List<PlcObject>, PlcObject> function;
+        private Nullary nullary = null;
+        private Unary unary = null;
+        private Binary binary = null;
+        private Ternary ternary = null;
+        private Quaternary quaternary = null;
 
         public Function(String name, int arity, java.util.function.Function<List<PlcObject>, PlcObject> function) {
             this(name, name, new ArrayList<>(), Type.ANY, function);
@@ -205,6 +314,31 @@ public final class Environment {
             }
         }
 
+        public Function(String name, Nullary function) {
+            this(name, 0, args -> function.invoke());
+            this.nullary = function;
+        }
+
+        public Function(String name, Unary function) {
+            this(name, 1, args -> function.invoke(args.get(0)));
+            this.unary = function;
+        }
+
+        public Function(String name, Binary function) {
+            this(name, 2, args -> function.invoke(args.get(0), args.get(1)));
+            this.binary = function;
+        }
+
+        public Function(String name, Ternary function) {
+            this(name, 3, args -> function.invoke(args.get(0), args.get(1), args.get(2)));
+            this.ternary = function;
+        }
+
+        public Function(String name, Quaternary function) {
+            this(name, 4, args -> function.invoke(args.get(0), args.get(1), args.get(2), args.get(3)));
+            this.quaternary = function;
+        }
+
         public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, java.util.function.Function<List<PlcObject>, PlcObject> function) {
             this.name = name;
             this.jvmName = jvmName;
@@ -238,6 +372,40 @@ public final class Environment {
             return function.apply(arguments);
         }
 
+        public PlcObject invoke() {
+            return nullary != null ? nullary.invoke() : function.apply(List.of());
+        }
+
+        public PlcObject invoke(PlcObject first) {
+            return unary != null ? unary.invoke(first) : function.apply(Arrays.asList(first));
+        }
+
+        public PlcObject invoke(PlcObject first, PlcObject second) {
+            return binary != null ? binary.invoke(first, second) : function.apply(Arrays.asList(first, second));
+        }
+
+        public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third) {
+            return ternary != null ? ternary.invoke(first, second, third) : function.apply(Arrays.asList(first, second, third));
+        }
+
+        public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third, PlcObject fourth) {
+            return quaternary != null ? quaternary.invoke(first, second, third, fourth) : function.apply(Arrays.asList(first, second, third, fourth));
+        }
+
+        /**
+         * Replaces the implementation of this function, such as with a compiled
+         * version. Every caller holding this function calls the new one, always
+         * through the list of arguments.
+         */
+        public void setFunction(java.util.function.Function<List<PlcObject>, PlcObject> function) {
+            this.function = function;
+            this.nullary = null;
+            this.unary = null;
+            this.binary = null;
+            this.ternary = null;
+            this.quaternary = null;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Function &&
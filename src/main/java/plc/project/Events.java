@@ -0,0 +1,109 @@
+package plc.project;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for each phase of the pipeline and for function
+ * calls in the {@link Interpreter}, recorded with the usual JFR settings, e.g.
+ * {@code java -XX:StartFlightRecording:filename=plc.jfr ...}.
+ *
+ * Each event is created and committed around the phase it times. While JFR is
+ * not recording them, {@code begin} and {@code commit} do nothing and the
+ * sizes, some of which take a walk of the AST, are not computed. Calls are
+ * frequent enough that their event is not even created then.
+ */
+public final class Events {
+
+    private static final EventType CALL = EventType.getEventType(Call.class);
+
+    private Events() {}
+
+    /**
+     * Returns true if JFR is recording {@link Call} events.
+     */
+    static boolean isCallEnabled() {
+        return CALL.isEnabled();
+    }
+
+    @Name("plc.Lex")
+    @Label("Lex")
+    @Category("PLC")
+    @StackTrace(false)
+    public static final class Lex extends Event {
+
+        @Label("Characters")
+        int characters;
+
+        @Label("Tokens")
+        int tokens;
+
+    }
+
+    @Name("plc.Parse")
+    @Label("Parse")
+    @Category("PLC")
+    @StackTrace(false)
+    public static final class Parse extends Event {
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Nodes")
+        @Description("Statements and expressions in the AST")
+        int nodes;
+
+    }
+
+    @Name("plc.Analyze")
+    @Label("Analyze")
+    @Category("PLC")
+    @StackTrace(false)
+    public static final class Analyze extends Event {
+
+        @Label("Nodes")
+        @Description("Statements and expressions in the AST")
+        int nodes;
+
+    }
+
+    @Name("plc.Generate")
+    @Label("Generate")
+    @Category("PLC")
+    @StackTrace(false)
+    public static final class Generate extends Event {
+
+        @Label("Nodes")
+        @Description("Statements and expressions in the AST")
+        int nodes;
+
+        @Label("Characters")
+        @Description("Characters of Java source written")
+        long characters;
+
+    }
+
+    /**
+     * A call to a function run by the {@link Interpreter}. Once the JIT has
+     * compiled a function, calls to it emit no event.
+     */
+    @Name("plc.Call")
+    @Label("Function Call")
+    @Category("PLC")
+    @StackTrace(false)
+    public static final class Call extends Event {
+
+        @Label("Function")
+        String function;
+
+        @Label("Arguments")
+        int arguments;
+
+    }
+
+}
@@ -3,11 +3,14 @@ package plc.project;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.List;
 
 public final class Generator implements Ast.Visitor<Void> {
 
     private final PrintWriter writer;
+    private long written = 0;
     private int indent = 0;
+    private Ast.Function function = null;
 
     public Generator(PrintWriter writer) {
         this.writer = writer;
@@ -18,13 +21,16 @@ public final class Generator implements Ast.Visitor<Void> {
             if (object instanceof Ast) {
                 visit((Ast) object);
             } else {
-                writer.write(object.toString());
+                String string = object.toString();
+                written += string.length();
+                writer.write(string);
             }
         }
     }
 
     private void newline(int indent) {
         writer.println();
+        written += System.lineSeparator().length() + 4 * indent;
         for (int i = 0; i < indent; i++) {
             writer.write("    ");
         }
@@ -33,6 +39,10 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Source ast) {
 
+        Events.Generate event = new Events.Generate();
+        event.begin();
+        long start = written;
+
         print("public class Main {");
         indent++;
         newline(0);
@@ -75,6 +85,14 @@ public final class Generator implements Ast.Visitor<Void> {
 
         print("}");
 
+        if ( event.shouldCommit() ) {
+
+            event.nodes = Nodes.count(ast);
+            event.characters = written - start;
+            event.commit();
+
+        }
+
         return null;
     }
 
@@ -178,10 +196,24 @@ public final class Generator implements Ast.Visitor<Void> {
 
         print(") {");
 
+        // tail calls reassign the parameters and continue this loop
+        boolean loop = TailCalls.hasTailCall(ast);
+        function = ast;
+
         if ( !ast.getStatements().isEmpty() ) {
 
             indent++;
 
+            if ( loop ) {
+
+                newline(indent);
+                print("tail:");
+                newline(indent);
+                print("while (true) {");
+                indent++;
+
+            }
+
             for ( Ast.Statement statement : ast.getStatements() ) {
 
                 newline(indent);
@@ -189,10 +221,25 @@ public final class Generator implements Ast.Visitor<Void> {
 
             }
 
+            if ( loop ) {
+
+                if ( TailCalls.completesNormally(ast.getStatements()) ) {
+
+                    newline(indent);
+                    print("break tail;");
+
+                }
+
+                newline(--indent);
+                print("}");
+
+            }
+
             newline(--indent);
 
         }
 
+        function = null;
         print("}");
 
         return null;
@@ -322,8 +369,14 @@ public final class Generator implements Ast.Visitor<Void> {
 
             }
 
-            newline(indent);
-            print("break;");
+            // a break after a RETURN or tail call would be unreachable
+            if ( TailCalls.completesNormally(ast.getStatements()) ) {
+
+                newline(indent);
+                print("break;");
+
+            }
+
             indent--;
 
             return null;
@@ -378,9 +431,52 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Return ast) {
 
-        print("return ");
-        print(ast.getValue());
-        print(";");
+        Ast.Expression.Function call = function != null ? TailCalls.getTailCall(function, ast) : null;
+
+        if ( call == null ) {
+
+            print("return ");
+            print(ast.getValue());
+            print(";");
+
+            return null;
+
+        }
+
+        print("{");
+        indent++;
+
+        List<String> parameters = function.getParameters();
+
+        if ( parameters.size() == 1 ) {
+
+            newline(indent);
+            print(parameters.get(0), " = ", call.getArguments().get(0), ";");
+
+        }
+        else {
+
+            // every argument is evaluated before any parameter changes
+            for ( int a = 0; a < parameters.size(); a++ ) {
+
+                newline(indent);
+                print(function.getParameterTypeNames().get(a), " ", parameters.get(a), "$ = ", call.getArguments().get(a), ";");
+
+            }
+
+            for ( int a = 0; a < parameters.size(); a++ ) {
+
+                newline(indent);
+                print(parameters.get(a), " = ", parameters.get(a), "$;");
+
+            }
+
+        }
+
+        newline(indent);
+        print("continue tail;");
+        newline(--indent);
+        print("}");
 
         return null;
     }
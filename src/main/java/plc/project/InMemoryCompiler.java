@@ -0,0 +1,212 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the Java source produced by the {@link Generator} with the JDK's
+ * {@link JavaCompiler} and runs it, without writing any files.
+ *
+ * Compiled classes are cached by the SHA-256 hash of their source, so running
+ * the same program again skips compilation; the least recently used programs
+ * are dropped once the cache is full. Each run creates a new {@code Main}, so
+ * globals (which are fields of {@code Main}) start over for every run.
+ */
+public final class InMemoryCompiler {
+
+    private static final int CACHE_SIZE = 64;
+
+    private final JavaCompiler compiler;
+    private final Map<String, Class<?>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Class<?>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private int compilations = 0;
+    private int hits = 0;
+
+    public InMemoryCompiler() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler is available; a JDK is required.");
+        }
+    }
+
+    /**
+     * Returns the Java source generated for {@code ast}.
+     */
+    public static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+    /**
+     * Generates, compiles and runs {@code ast}, returning the result of its
+     * {@code main} function.
+     */
+    public Object run(Ast.Source ast) {
+        return run(generate(ast));
+    }
+
+    /**
+     * Compiles (or takes from the cache) and runs the generated {@code source},
+     * returning the result of its {@code main} function.
+     */
+    public Object run(String source) {
+        Class<?> main = compile(source);
+        try {
+            Method function = main.getDeclaredMethod("main");
+            function.setAccessible(true);
+            return function.invoke(main.getDeclaredConstructor().newInstance());
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("The generated class has no main function.", e);
+        }
+    }
+
+    /**
+     * Returns the {@code Main} class compiled from {@code source}, compiling it
+     * only if the same source is not already cached.
+     */
+    public synchronized Class<?> compile(String source) {
+        String key = hash(source);
+        Class<?> main = cache.get(key);
+        if (main != null) {
+            hits++;
+            return main;
+        }
+        Map<String, byte[]> classes = javac(source);
+        try {
+            main = new MemoryClassLoader(classes).loadClass("Main");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The generated source does not declare Main.", e);
+        }
+        compilations++;
+        cache.put(key, main);
+        return main;
+    }
+
+    /**
+     * Returns the number of sources that were compiled, rather than taken from
+     * the cache.
+     */
+    public synchronized int getCompilations() {
+        return compilations;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    private Map<String, byte[]> javac(String source) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject unit = new SimpleJavaFileObject(URI.create("string:///Main.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        try (MemoryFileManager files = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8))) {
+            boolean success = compiler.getTask(null, files, diagnostics, List.of("-proc:none", "-nowarn"), null, Collections.singletonList(unit)).call();
+            if (!success) {
+                StringBuilder message = new StringBuilder("The generated source does not compile:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append(System.lineSeparator()).append("line ").append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+                }
+                throw new RuntimeException(message.toString());
+            }
+            return files.classes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK provides SHA-256
+        }
+    }
+
+    /**
+     * Keeps the class files written by the compiler in memory, by class name.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        private MemoryFileManager(JavaFileManager manager) {
+            super(manager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+
+    }
+
+    private static final class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        private MemoryClassLoader(Map<String, byte[]> classes) {
+            super(InMemoryCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link Interpreter} counting how many times each statement and
+ * expression is executed and the nanoseconds spent in it, children included,
+ * so the time of a recursive call also counts towards every enclosing call.
+ *
+ * Nodes are numbered when the source is visited, and the counts and times
+ * are kept in arrays indexed by node id. The ids are kept here rather than in
+ * the AST, which may be shared with other runs (see {@link Program}), so it is
+ * never modified. Only this subclass intercepts
+ * {@link #visit(Ast)}, so a plain {@code Interpreter} pays nothing for it.
+ * Function calls made on other threads (see {@link Interpreter#load}) and
+ * functions compiled by the JIT are not counted.
+ */
+public final class InstrumentedInterpreter extends Interpreter {
+
+    private Map<Ast, Integer> ids = new IdentityHashMap<>();
+    private Ast[] nodes = new Ast[0];
+    private long[] counts = new long[0];
+    private long[] nanos = new long[0];
+
+    public InstrumentedInterpreter(Scope parent, boolean resolved) {
+        super(parent, resolved);
+    }
+
+    /**
+     * Numbers the nodes of {@code ast}, which {@link #visit(Ast.Source)} also
+     * does before running {@code main}, and then loads it.
+     */
+    @Override
+    public void load(Ast.Source ast) {
+        number(ast);
+        super.load(ast);
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast ast) {
+        Integer id = ids.get(ast);
+        if (id == null) {
+            return super.visit(ast);
+        }
+        long start = System.nanoTime();
+        try {
+            return super.visit(ast);
+        } finally {
+            nanos[id] += System.nanoTime() - start;
+            counts[id]++;
+        }
+    }
+
+    /**
+     * Returns how many times {@code ast} was executed.
+     */
+    public long getCount(Ast ast) {
+        Integer id = ids.get(ast);
+        return id != null ? counts[id] : 0;
+    }
+
+    /**
+     * Returns the nanoseconds spent executing {@code ast}, including the
+     * nodes it contains and the functions it calls.
+     */
+    public long getNanos(Ast ast) {
+        Integer id = ids.get(ast);
+        return id != null ? nanos[id] : 0;
+    }
+
+    /**
+     * Returns {@code source}, the text the visited AST was parsed from, with
+     * every line prefixed by the count and time (in microseconds) of the
+     * first statement starting on it.
+     */
+    public String report(String source) {
+        String[] lines = source.split("\n", -1);
+        int[] starts = new int[lines.length];
+        for (int i = 1; i < lines.length; i++) {
+            starts[i] = starts[i - 1] + lines[i - 1].length() + 1;
+        }
+        Ast[] first = new Ast[lines.length];
+        for (Ast node : nodes) {
+            if (node instanceof Ast.Statement && node.getIndex() >= 0) {
+                int line = line(starts, node.getIndex());
+                if (first[line] == null) {
+                    first[line] = node;
+                }
+            }
+        }
+        StringBuilder builder = new StringBuilder(String.format("%10s %12s  %s%n", "count", "time (us)", "source"));
+        for (int i = 0; i < lines.length; i++) {
+            if (first[i] != null) {
+                builder.append(String.format("%10d %12.1f  %s%n", getCount(first[i]), getNanos(first[i]) / 1000.0, lines[i]));
+            } else {
+                builder.append(String.format("%10s %12s  %s%n", "", "", lines[i]));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int line(int[] starts, int index) {
+        int line = 0;
+        while (line + 1 < starts.length && starts[line + 1] <= index) {
+            line++;
+        }
+        return line;
+    }
+
+    /**
+     * Numbers the statements and expressions of {@code ast} in source order,
+     * outer nodes first, and resets the counters.
+     */
+    private void number(Ast.Source ast) {
+        Map<Ast, Integer> numbering = new IdentityHashMap<>();
+        List<Ast> numbered = new ArrayList<>();
+        Nodes.forEach(ast, node -> {
+            numbering.put(node, numbered.size());
+            numbered.add(node);
+        });
+        ids = numbering;
+        nodes = numbered.toArray(new Ast[0]);
+        counts = new long[nodes.length];
+        nanos = new long[nodes.length];
+    }
+
+}
@@ -1,34 +1,241 @@
 package plc.project;
 
+import plc.project.jit.JitCompiler;
+
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
+    /**
+     * Returned by a statement (and by every statement enclosing it) once a
+     * {@code RETURN} has been executed, with the value in {@link #returned}.
+     * Statements otherwise complete normally, returning {@code NIL}.
+     */
+    private static final Environment.PlcObject RETURN = new Environment.PlcObject(new Scope(null), "RETURN");
+    private static final int BATCH = 1024;
+
     private Scope scope = new Scope(null);
+    private final Scope definitions;
+    private final Thread owner;
+    private ThreadLocal<Interpreter> contexts;
+    private final Map<Ast.Function, Frames> pools = new IdentityHashMap<>();
+    private final Map<Ast.Statement.Switch, Cases> tables = new IdentityHashMap<>();
+    private final boolean resolved;
+    private Environment.Variable[] globals = new Environment.Variable[0];
+    private Environment.PlcObject[] frame = null;
+    private Environment.PlcObject returned = null;
+    private List<Environment.PlcObject> tail = null;
+    private Ast.Function function = null;
+    private final int threshold;
+    private final AtomicInteger compilations = new AtomicInteger();
+    private Map<List<Object>, Environment.PlcObject> memo = null;
+    private Set<Ast.Function> pure = Collections.emptySet();
+    private int hits = 0;
+    private int misses = 0;
+    private Output output = null;
+    private final Interpreter root;
+    private volatile boolean cancelled = false;
+    private long limit = Long.MAX_VALUE;
+    private long budget = Long.MAX_VALUE;
+    private int ticks = 0;
+    private Profiler profiler = null;
+    private Profiler.Stack stack = null;
 
     public Interpreter(Scope parent) {
+        this(parent, false);
+    }
+
+    /**
+     * When {@code resolved} is true the interpreter expects an AST that has
+     * been through the {@link Resolver}, and stores globals and locals in
+     * arrays indexed by their resolved slots instead of looking them up by
+     * name in a chain of {@link Scope}s.
+     */
+    public Interpreter(Scope parent, boolean resolved) {
+        this(parent, resolved, 0);
+    }
+
+    /**
+     * When {@code threshold} is positive, every function is compiled to JVM
+     * bytecode by the {@link JitCompiler} once it has been called that many
+     * times, and later calls run the compiled code, which emits no
+     * {@link Events.Call} events. Functions the compiler does not handle are
+     * interpreted as before.
+     */
+    public Interpreter(Scope parent, boolean resolved, int threshold) {
+        this.resolved = resolved;
+        this.threshold = threshold;
         scope = new Scope(parent);
-        scope.defineFunction("print", 1, args -> {
-            System.out.println(args.get(0).getValue());
+        definitions = scope;
+        root = this;
+        owner = Thread.currentThread();
+        contexts = ThreadLocal.withInitial(() -> new Interpreter(this));
+        scope.defineFunction("print", value -> {
+            if (output != null) {
+                output.println(value.getValue());
+            } else {
+                System.out.println(value.getValue());
+            }
             return Environment.NIL;
         });
     }
 
+    /**
+     * Creates the context in which another thread runs the functions defined
+     * by {@code shared}. It has a scope chain, frames and pending return of its
+     * own, and shares the globals and functions.
+     */
+    private Interpreter(Interpreter shared) {
+        resolved = shared.resolved;
+        threshold = shared.threshold;
+        scope = shared.definitions;
+        definitions = shared.definitions;
+        globals = shared.globals;
+        root = shared;
+        owner = Thread.currentThread();
+        stack = shared.profiler != null ? shared.profiler.register(owner) : null;
+    }
+
     public Scope getScope() {
         return scope;
     }
 
+    /**
+     * Returns the number of functions that have been compiled.
+     */
+    public int getCompilations() {
+        return compilations.get();
+    }
+
+    /**
+     * Limits execution to {@code steps} loop iterations and function calls,
+     * after which the interpreter throws {@link Halted}. Each top-level call
+     * of a function, on whichever thread, starts with a budget of its own,
+     * including on threads that already called it before. Functions
+     * are not compiled while a budget is set, since compiled code does not
+     * count its steps.
+     */
+    public void setBudget(long steps) {
+        limit = steps;
+        budget = steps;
+        ticks = 0;
+    }
+
+    /**
+     * Stops execution on every thread running this interpreter, which throws
+     * {@link Halted} at its next loop iteration or function call, in compiled
+     * functions as well. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Records a shadow stack of the functions and loops being run for
+     * {@code profiler} to sample, on every thread running this interpreter.
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        stack = profiler != null ? profiler.register(owner) : null;
+    }
+
+    /**
+     * Sends the output of {@code print} to {@code output} instead of
+     * {@code System.out}. It is flushed when the program ends, including when
+     * it ends with an error.
+     */
+    public void setOutput(Output output) {
+        this.output = output;
+    }
+
+    /**
+     * Caches the results of {@link Purity pure} functions by their argument
+     * values, keeping at most {@code capacity} results and dropping the least
+     * recently used ones first. Must be called before visiting the source.
+     * Memoized functions are not compiled, since compiled code calls itself
+     * directly rather than through the cache.
+     */
+    public void setMemoization(int capacity) {
+        memo = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Environment.PlcObject> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of calls to pure functions answered from the cache.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
 
         List<Environment.PlcObject> args = new ArrayList<>();
 
+        try {
+
+            // global initializers may print too
+            load(ast);
+            return scope.lookupFunction("main", 0).invoke(args);
+
+        }
+        finally {
+
+            if ( output != null ) {
+
+                output.flush();
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Defines the globals and functions of {@code ast} without running
+     * {@code main}. The functions can then be called through
+     * {@link #getScope()}, including from several threads at once: each thread
+     * runs them in a context of its own, so only globals are shared, and
+     * writes to them are not synchronized.
+     */
+    public void load(Ast.Source ast) {
+
+        contexts = ThreadLocal.withInitial(() -> new Interpreter(this));
+
+        if ( resolved ) {
+
+            globals = new Environment.Variable[ast.getGlobals().size()];
+
+        }
+
+        if ( memo != null ) {
+
+            pure = Purity.getPureFunctions(ast);
+
+        }
+
         for ( Ast.Global global : ast.getGlobals() ) {
 
             visit(global);
@@ -41,8 +248,6 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         }
 
-        return scope.lookupFunction("main", 0).invoke(args);
-
     }
 
     @Override
@@ -57,6 +262,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         }
         scope.defineVariable(ast.getName(), isMutable, global);
+
+        if ( resolved ) {
+
+            globals[ast.getSlot()] = scope.lookupVariable(ast.getName());
+
+        }
+
         return Environment.NIL;
 
     }
@@ -66,196 +278,240 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         String name = ast.getName();
         int arity = ast.getParameters().size();
+        Frames frames = resolved ? new Frames(ast.getFrameSize()) : null;
+        Scope definition = scope;
+        AtomicInteger calls = new AtomicInteger();
 
-        scope.defineFunction(name, arity, args -> {
+        java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> body = args -> {
 
-            try {
+            // compiled self-calls would bypass the budget and the memoization cache
+            if ( threshold > 0 && limit == Long.MAX_VALUE && (memo == null || !pure.contains(ast)) && calls.incrementAndGet() == threshold ) {
 
-                scope = new Scope(scope);
+                // later calls go straight to the compiled code, this one finishes here
+                new JitCompiler(definition, root::poll).compile(ast).ifPresent(compiled -> {
 
-                for ( int a = 0; a < arity; a++ ) {
+                    definition.lookupFunction(name, arity).setFunction(memoize(ast, compiled));
+                    compilations.incrementAndGet();
 
-                    scope.defineVariable(ast.getParameters().get(a), true, args.get(a));
+                });
 
-                }
+            }
 
-                for ( Ast.Statement statement : ast.getStatements() ) {
+            Interpreter self = context();
+            Frames pool = self == this || !resolved ? frames : self.pool(ast);
+            Environment.PlcObject[] caller = self.frame;
+            Ast.Function enclosing = self.function;
+            List<Environment.PlcObject> arguments = args;
 
-                    visit(statement);
+            if ( enclosing == null ) {
 
-                }
+                // contexts outlive a call on pooled threads, so the budget is refilled per call
+                self.budget = limit;
+                self.ticks = 0;
 
             }
-            catch ( Return retrun ) {
 
-                return retrun.value;
+            // nothing is allocated for the event while JFR is not recording calls
+            Events.Call event = Events.isCallEnabled() ? new Events.Call() : null;
 
-            }
-            finally {
+            if ( event != null ) {
 
-                scope = scope.getParent();
+                event.begin();
 
             }
-            return Environment.NIL;
 
-        });
+            try {
 
-        return Environment.NIL;
+                self.function = ast;
 
+                if ( self.stack != null ) {
 
-    }
+                    self.stack.push(name);
 
-    @Override
-    public Environment.PlcObject visit(Ast.Statement.Expression ast) {
+                }
 
-        visit(ast.getExpression());
-        return Environment.NIL;
+                if ( resolved ) {
 
-    }
+                    self.frame = pool.acquire();
 
-    @Override
-    public Environment.PlcObject visit(Ast.Statement.Declaration ast) {
+                }
+                else {
 
-        Optional optional = ast.getValue();
-        Optional<Ast.Expression> op1 = ast.getValue();
-        Boolean present = optional.isPresent();
+                    self.scope = new Scope(self.scope);
 
-        if ( present ) {
+                }
 
-            Object obj = optional.get();
+                // each tail call starts the body over with new arguments
+                while ( true ) {
 
-            Ast.Expression expr = (Ast.Expression)optional.get();
-            Ast.Expression expr1 = (Ast.Expression)op1.get();
+                    self.step();
 
-            scope.defineVariable(ast.getName(), true, visit(expr));
+                    for ( int a = 0; a < arity; a++ ) {
 
-        }
-        else {
+                        if ( resolved ) {
 
-            scope.defineVariable(ast.getName(), true, Environment.NIL);
+                            self.frame[a] = arguments.get(a);
 
-        }
+                        }
+                        else {
 
-        return Environment.NIL;
+                            self.scope.defineVariable(ast.getParameters().get(a), true, arguments.get(a));
 
-    }
+                        }
 
-    @Override
-    public Environment.PlcObject visit(Ast.Statement.Assignment ast) {
+                    }
 
-        if ( ast.getReceiver() instanceof Ast.Expression.Access ) {
+                    if ( self.execute(ast.getStatements(), false) != RETURN ) {
 
-            Ast.Expression.Access access = (Ast.Expression.Access)ast.getReceiver();
+                        return Environment.NIL;
 
-            if ( access.getOffset().isPresent() ) {
+                    }
+                    else if ( self.tail == null ) {
 
-                Ast.Expression.Literal value = (Ast.Expression.Literal)ast.getValue();
+                        Environment.PlcObject value = self.returned;
+                        self.returned = null;
+                        return value;
 
-                Environment.PlcObject lObj = visit(access);
-                Environment.PlcObject offset = visit(access.getOffset().get());
+                    }
 
-                List<Object> _list = requireType(List.class, scope.lookupVariable(access.getName()).getValue());
-                BigInteger off = (BigInteger) offset.getValue();
+                    arguments = self.tail;
+                    self.tail = null;
 
-                _list.set(off.intValue(), value.getLiteral());
-                Environment.PlcObject updated = Environment.create(_list);
+                    if ( !resolved ) {
+
+                        self.scope = new Scope(self.scope.getParent());
 
-                scope.lookupVariable(access.getName()).setValue(updated);
+                    }
+
+                }
 
             }
-            else {
+            finally {
+
+                self.function = enclosing;
 
-                if ( scope.lookupVariable(access.getName()).getMutable() ) {
+                if ( event != null && event.shouldCommit() ) {
 
-                    scope.lookupVariable(access.getName()).setValue(visit(ast.getValue()));
+                    event.function = name;
+                    event.arguments = arity;
+                    event.commit();
 
                 }
-                else {
 
-                    throw new RuntimeException("Immutable Variable");
+                if ( self.stack != null ) {
+
+                    self.stack.pop();
 
                 }
 
+                if ( resolved ) {
 
-            }
+                    pool.release();
+                    self.frame = caller;
 
-        }
-        else {
+                }
+                else {
 
-            throw new RuntimeException("Not Access Type");
+                    self.scope = self.scope.getParent();
 
-        }
+                }
+
+            }
 
+        };
+
+        scope.defineFunction(name, arity, memoize(ast, body));
         return Environment.NIL;
 
-    }
 
-    @Override
-    public Environment.PlcObject visit(Ast.Statement.If ast) {
+    }
 
-        if ( requireType(Boolean.class, visit(ast.getCondition())) ) {
+    /**
+     * Wraps {@code body} to cache its results when {@code ast} is pure and
+     * memoization is enabled, otherwise returns it unchanged.
+     */
+    private java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> memoize(Ast.Function ast, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> body) {
 
-            try {
+        if ( memo == null || !pure.contains(ast) ) {
 
-                scope = new Scope(scope);
+            return body;
 
-                for ( Ast.Statement statement : ast.getThenStatements() ) {
+        }
 
-                    visit(statement);
+        return args -> {
 
-                }
+            List<Object> key = new ArrayList<>(args.size() + 1);
+            key.add(ast.getName());
 
+            for ( Environment.PlcObject arg : args ) {
 
+                if ( arg.getValue() instanceof List ) {
 
-            }
-            finally {
+                    // a list argument can change after the call, so it is never a key
+                    return body.apply(args);
 
-                scope = scope.getParent();
+                }
+                key.add(arg.getValue());
 
             }
 
-        }
-        else if ( !requireType(Boolean.class, visit(ast.getCondition())) ) {
-
-            try {
+            // calls may come from several threads, see load
+            synchronized ( memo ) {
 
-                scope = new Scope(scope);
+                Environment.PlcObject value = memo.get(key);
 
-                for ( Ast.Statement statement : ast.getElseStatements() ) {
+                if ( value != null ) {
 
-                    visit(statement);
+                    hits++;
+                    return value;
 
                 }
 
+                misses++;
+
             }
-            finally {
 
-                scope = scope.getParent();
+            Environment.PlcObject value = body.apply(args);
+
+            synchronized ( memo ) {
+
+                memo.put(key, value);
 
             }
 
-        }
-        else {
+            return value;
 
-            throw new RuntimeException("No boolean expression");
+        };
 
-        }
+    }
 
+    @Override
+    public Environment.PlcObject visit(Ast.Statement.Expression ast) {
+
+        visit(ast.getExpression());
         return Environment.NIL;
 
     }
 
     @Override
-    public Environment.PlcObject visit(Ast.Statement.Switch ast) {
+    public Environment.PlcObject visit(Ast.Statement.Declaration ast) {
 
-        for ( Ast.Statement.Case _case : ast.getCases() ) {
+        Environment.PlcObject value = Environment.NIL;
 
-            if ( _case.getValue().equals(ast.getCondition()) ) {
+        if ( ast.getValue().isPresent() ) {
 
-                visit(_case);
-                return Environment.NIL;
+            value = visit(ast.getValue().get());
 
-            }
+        }
+
+        if ( resolved ) {
+
+            frame[ast.getSlot()] = value;
+
+        }
+        else {
+
+            scope.defineVariable(ast.getName(), true, value);
 
         }
 
@@ -264,44 +520,52 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     @Override
-    public Environment.PlcObject visit(Ast.Statement.Case ast) {
+    public Environment.PlcObject visit(Ast.Statement.Assignment ast) {
 
-        for ( Ast.Statement statement : ast.getStatements() ) {
+        if ( ast.getReceiver() instanceof Ast.Expression.Access ) {
 
-            visit(statement);
+            Ast.Expression.Access access = (Ast.Expression.Access)ast.getReceiver();
 
-        }
+            if ( access.getOffset().isPresent() ) {
 
-        return Environment.NIL;
+                Ast.Expression.Literal value = (Ast.Expression.Literal)ast.getValue();
 
-    }
+                Environment.PlcObject lObj = visit(access);
+                Environment.PlcObject offset = visit(access.getOffset().get());
 
-    @Override
-    public Environment.PlcObject visit(Ast.Statement.While ast) {
+                List<Object> _list = requireType(List.class, read(access));
+                BigInteger off = (BigInteger) offset.getValue();
 
-        if ( requireType(Boolean.class, visit(ast.getCondition()))) {
+                _list.set(off.intValue(), value.getLiteral());
 
-            while ( requireType(Boolean.class, visit(ast.getCondition())) ) {
+            }
+            else if ( resolved && access.getDepth() == 0 ) {
 
-                try {
+                frame[access.getSlot()] = visit(ast.getValue());
+
+            }
+            else {
 
-                    scope = new Scope(scope);
+                Environment.Variable variable = resolved ? globals[access.getSlot()] : scope.lookupVariable(access.getName());
 
-                    ast.getStatements().forEach(this::visit);
+                if ( variable.getMutable() ) {
+
+                    variable.setValue(visit(ast.getValue()));
 
                 }
-                finally {
+                else {
 
-                    scope = scope.getParent();
+                    throw new RuntimeException("Immutable Variable");
 
                 }
 
+
             }
 
         }
         else {
 
-            throw new RuntimeException("No boolean expression");
+            throw new RuntimeException("Not Access Type");
 
         }
 
@@ -310,333 +574,307 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     @Override
-    public Environment.PlcObject visit(Ast.Statement.Return ast) {
-
-        throw new Return(visit(ast.getValue()));
-
-    }
-
-    @Override
-    public Environment.PlcObject visit(Ast.Expression.Literal ast) {
+    public Environment.PlcObject visit(Ast.Statement.If ast) {
 
-        if ( ast.getLiteral() != null ) {
+        if ( requireType(Boolean.class, visit(ast.getCondition())) ) {
 
-            return Environment.create(ast.getLiteral());
+            return execute(ast.getThenStatements());
 
         }
         else {
 
-            return Environment.NIL;
+            return execute(ast.getElseStatements());
 
         }
-    }
-
-    @Override
-    public Environment.PlcObject visit(Ast.Expression.Group ast) {
-
-        return visit(ast.getExpression());
 
     }
 
     @Override
-    public Environment.PlcObject visit(Ast.Expression.Binary ast) {
-
-        String operator = ast.getOperator();
-        Environment.PlcObject LHS = visit(ast.getLeft());
-
-        if ( operator.equals("+") ) {
+    public Environment.PlcObject visit(Ast.Statement.Switch ast) {
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+        Object value = visit(ast.getCondition()).getValue();
+        Cases table = tables.computeIfAbsent(ast, Cases::new);
 
-            if ( LHS.getValue() instanceof String || RHS.getValue() instanceof String ) {
+        if ( table.constant ) {
 
-                return Environment.create(LHS.getValue().toString() + RHS.getValue().toString());
+            return visit(table.cases.getOrDefault(value, table.fallback));
 
-            }
-            else if ( LHS.getValue() instanceof BigInteger && RHS.getValue() instanceof BigInteger ) {
+        }
 
-                return Environment.create(((BigInteger) LHS.getValue()).add((BigInteger) RHS.getValue()));
+        // a case value that is not a literal is evaluated each time, in order
+        for ( Ast.Statement.Case _case : ast.getCases() ) {
 
-            }
-            else if ( LHS.getValue() instanceof BigDecimal && RHS.getValue() instanceof BigDecimal ) {
+            if ( _case.getValue().isPresent() && Objects.equals(value, visit(_case.getValue().get()).getValue()) ) {
 
-                return Environment.create(((BigDecimal) LHS.getValue()).add((BigDecimal) RHS.getValue()));
+                return visit(_case);
 
             }
 
         }
-        else if ( operator.equals("-") ) {
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+        return visit(table.fallback);
 
-            if ( LHS.getValue() instanceof BigInteger && RHS.getValue() instanceof BigInteger ) {
-
-                return Environment.create(BigInteger.class.cast(LHS.getValue()).subtract(BigInteger.class.cast(RHS.getValue())));
-
-            }
-            else if ( LHS.getValue() instanceof BigDecimal && RHS.getValue() instanceof BigDecimal ) {
+    }
 
-                return Environment.create(BigDecimal.class.cast(LHS.getValue()).subtract(BigDecimal.class.cast(RHS.getValue())));
+    @Override
+    public Environment.PlcObject visit(Ast.Statement.Case ast) {
 
-            }
+        return execute(ast.getStatements());
 
-        }
-        else if ( operator.equals("*") ) {
+    }
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+    @Override
+    public Environment.PlcObject visit(Ast.Statement.While ast) {
 
-            if ( LHS.getValue() instanceof BigInteger && RHS.getValue() instanceof BigInteger ) {
+        if ( stack != null ) {
 
-                return Environment.create(BigInteger.class.cast(LHS.getValue()).multiply(BigInteger.class.cast(RHS.getValue())));
+            stack.push("WHILE@" + ast.getIndex());
 
-            }
-            else if ( LHS.getValue() instanceof BigDecimal && RHS.getValue() instanceof BigDecimal ) {
+        }
 
-                return Environment.create(BigDecimal.class.cast(LHS.getValue()).multiply(BigDecimal.class.cast(RHS.getValue())));
+        try {
 
-            }
+            while ( requireType(Boolean.class, visit(ast.getCondition())) ) {
 
-        }
-        else if ( operator.equals("/") ) {
+                step();
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+                if ( execute(ast.getStatements()) == RETURN ) {
 
-            if ( LHS.getValue() instanceof BigInteger && RHS.getValue() instanceof BigInteger ) {
+                    return RETURN;
 
-                return Environment.create(BigInteger.class.cast(LHS.getValue()).divide(BigInteger.class.cast(RHS.getValue())));
+                }
 
             }
-            else if ( LHS.getValue() instanceof BigDecimal && RHS.getValue() instanceof BigDecimal ) {
 
-                return Environment.create(BigDecimal.class.cast(LHS.getValue()).divide(BigDecimal.class.cast(RHS.getValue()), RoundingMode.HALF_EVEN));
-
-            }
+            return Environment.NIL;
 
         }
-        else if ( operator.equals("^") ) {
+        finally {
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+            if ( stack != null ) {
 
-            if ( LHS.getValue() instanceof BigInteger && RHS.getValue() instanceof BigInteger ) {
-
-                BigInteger result = BigInteger.class.cast(LHS.getValue());
-
-                for ( int a = 0; a < ((BigInteger) RHS.getValue()).intValue(); a++ ) {
-
-                    result.multiply(result);
-
-                }
-
-                return Environment.create(result);
+                stack.pop();
 
             }
 
         }
-        else if ( operator.equals("&&") ) {
-
-            Environment.PlcObject RHS = visit(ast.getRight());
 
-            if ( requireType(Boolean.class, LHS ) == false ) {
-
-                return Environment.create(Boolean.FALSE);
+    }
 
-            }
+    @Override
+    public Environment.PlcObject visit(Ast.Statement.Return ast) {
 
-            if ( requireType(Boolean.class, LHS) == requireType(Boolean.class, RHS) ) {
+        Ast.Expression.Function call = function != null ? TailCalls.getTailCall(function, ast) : null;
 
-                return LHS;
+        if ( call != null ) {
 
-            }
-            else {
+            tail = arguments(call);
 
-                return Environment.create(Boolean.FALSE);
+        }
+        else {
 
-            }
+            returned = visit(ast.getValue());
 
         }
-        else if ( operator.equals("||") ) {
-
 
-            if ( requireType(Boolean.class, LHS) == Boolean.TRUE ) {
+        return RETURN;
 
-                return LHS;
+    }
 
-            }
-            else if ( requireType(Boolean.class, visit(ast.getRight())) == Boolean.TRUE) {
+    @Override
+    public Environment.PlcObject visit(Ast.Expression.Literal ast) {
 
-                return visit(ast.getRight());
+        if ( ast.getLiteral() != null ) {
 
-            }
-            else {
+            return Environment.create(ast.getLiteral());
 
-                return Environment.create(Boolean.FALSE);
+        }
+        else {
 
-            }
+            return Environment.NIL;
 
         }
-        else if ( operator.equals("<") ) {
+    }
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+    @Override
+    public Environment.PlcObject visit(Ast.Expression.Group ast) {
 
-            if ( LHS.getValue() instanceof Comparable<?> && RHS.getValue() instanceof Comparable<?>) {
+        return visit(ast.getExpression());
 
-                Comparable<Object> LC = (Comparable<Object>)LHS.getValue();
-                Comparable<Object> RC = (Comparable<Object>)RHS.getValue();
+    }
 
-                if ( LC.compareTo(RC) < 0 ) {
+    @Override
+    public Environment.PlcObject visit(Ast.Expression.Binary ast) {
 
-                    return Environment.create(Boolean.TRUE);
+        String operator = ast.getOperator();
+        Environment.PlcObject LHS = visit(ast.getLeft());
 
-                }
-                else {
+        // the right operand of && and || is evaluated at most once, and only
+        // when the left one does not decide the result
+        if ( operator.equals("&&") ) {
 
-                    return Environment.create(Boolean.FALSE);
+            if ( requireType(Boolean.class, LHS) == false ) {
 
-                }
+                return Environment.FALSE;
 
             }
 
-        }
-        else if ( operator.equals("<=") ) {
+            return requireType(Boolean.class, visit(ast.getRight())) ? Environment.TRUE : Environment.FALSE;
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+        }
+        else if ( operator.equals("||") ) {
 
-            if ( LHS.getValue() instanceof Comparable<?> && RHS.getValue() instanceof Comparable<?>) {
+            if ( requireType(Boolean.class, LHS) == true ) {
 
-                Comparable<Object> LC = (Comparable<Object>)LHS.getValue();
-                Comparable<Object> RC = (Comparable<Object>)RHS.getValue();
+                return Environment.TRUE;
 
-                if ( LC.compareTo(RC) <= 0 ) {
+            }
 
-                    return Environment.create(Boolean.TRUE);
+            return requireType(Boolean.class, visit(ast.getRight())) ? Environment.TRUE : Environment.FALSE;
 
-                }
-                else {
+        }
 
-                    return Environment.create(Boolean.FALSE);
+        Environment.PlcObject RHS = visit(ast.getRight());
+        return Operators.apply(operator, LHS, RHS);
 
-                }
+    }
 
-            }
+    @Override
+    public Environment.PlcObject visit(Ast.Expression.Access ast) {
 
-        }
-        else if ( operator.equals(">") ) {
+        if ( ast.getOffset().isPresent() ) {
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+            Environment.PlcObject offset = visit(ast.getOffset().get());
+            List<?> _list = requireType(List.class, read(ast));
 
-            if ( LHS.getValue() instanceof Comparable<?> && RHS.getValue() instanceof Comparable<?>) {
+            if ( offset.getValue() instanceof BigInteger ) {
 
-                Comparable<Object> LC = (Comparable<Object>)LHS.getValue();
-                Comparable<Object> RC = (Comparable<Object>)RHS.getValue();
+                int index = ((BigInteger) offset.getValue()).intValue();
 
-                if ( LC.compareTo(RC) > 0 ) {
+                if ( index >= 0 && index < _list.size() ) {
 
-                    return Environment.create(Boolean.TRUE);
+                    Environment.PlcObject ret = Environment.create(_list.get(index));
+                    return ret;
 
                 }
-                else {
 
-                    return Environment.create(Boolean.FALSE);
+            }
+            else {
 
-                }
+                throw new RuntimeException("Not BigInteger offset");
 
             }
 
         }
-        else if ( operator.equals(">=") ) {
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+        return read(ast);
 
-            if ( LHS.getValue() instanceof Comparable<?> && RHS.getValue() instanceof Comparable<?>) {
+    }
 
-                Comparable<Object> LC = (Comparable<Object>)LHS.getValue();
-                Comparable<Object> RC = (Comparable<Object>)RHS.getValue();
+    @Override
+    public Environment.PlcObject visit(Ast.Expression.Function ast) {
 
-                if ( LC.compareTo(RC) >= 0 ) {
+        List<Ast.Expression> args = ast.getArguments();
+        Environment.Function func = scope.lookupFunction(ast.getName(), args.size());
+
+        // up to four arguments are passed directly, without building a list
+        switch ( args.size() ) {
+
+            case 0:
+                return func.invoke();
+            case 1:
+                return func.invoke(visit(args.get(0)));
+            case 2:
+                return func.invoke(visit(args.get(0)), visit(args.get(1)));
+            case 3:
+                return func.invoke(visit(args.get(0)), visit(args.get(1)), visit(args.get(2)));
+            case 4:
+                return func.invoke(visit(args.get(0)), visit(args.get(1)), visit(args.get(2)), visit(args.get(3)));
+            default:
+                return func.invoke(arguments(ast));
 
-                    return Environment.create(Boolean.TRUE);
+        }
 
-                }
-                else {
+    }
 
-                    return Environment.create(Boolean.FALSE);
+    @Override
+    public Environment.PlcObject visit(Ast.Expression.PlcList ast) {
 
-                }
 
-            }
+        List<Object> values = new ArrayList<>();
+        for ( int a = 0; a < ast.getValues().size(); a++ ) {
 
-        }
-        else if ( operator.equals("==") ) {
+            Ast.Expression.Literal val = (Ast.Expression.Literal) ast.getValues().get(a);
+            values.add(val.getLiteral());
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+        }
 
-            if ( LHS.getValue().equals(RHS.getValue()) ) {
+        return Environment.create(values);
 
-                return Environment.create(Boolean.TRUE);
+    }
 
-            }
-            else {
+    /**
+     * Executes a block of statements in a new scope, stopping at a
+     * {@code RETURN}. Resolved ASTs keep their locals in the function's frame,
+     * so no scope is created for them.
+     */
+    private Environment.PlcObject execute(List<Ast.Statement> statements) {
 
-                return Environment.create(Boolean.FALSE);
+        return execute(statements, !resolved);
 
-            }
+    }
 
-        }
-        else if ( operator.equals("!=") ) {
+    /**
+     * Executes a block of statements, in a new scope if {@code scoped} is
+     * true, stopping at a {@code RETURN}.
+     */
+    private Environment.PlcObject execute(List<Ast.Statement> statements, boolean scoped) {
 
-            Environment.PlcObject RHS = visit(ast.getRight());
+        if ( !scoped ) {
 
-            if ( LHS.getValue().equals(RHS.getValue()) ) {
+            for ( Ast.Statement statement : statements ) {
 
-                return Environment.create(Boolean.FALSE);
+                if ( visit(statement) == RETURN ) {
 
-            }
-            else {
+                    return RETURN;
 
-                return Environment.create(Boolean.TRUE);
+                }
 
             }
 
-        }
-
-        throw new RuntimeException("Wrong types");
-
-    }
+            return Environment.NIL;
 
-    @Override
-    public Environment.PlcObject visit(Ast.Expression.Access ast) {
+        }
 
-        if ( ast.getOffset().isPresent() ) {
+        try {
 
-            Environment.PlcObject offset = visit(ast.getOffset().get());
-            List<?> _list = requireType(List.class, scope.lookupVariable(ast.getName()).getValue());
+            scope = new Scope(scope);
 
-            if ( offset.getValue() instanceof BigInteger ) {
+            for ( Ast.Statement statement : statements ) {
 
-                int index = ((BigInteger) offset.getValue()).intValue();
+                if ( visit(statement) == RETURN ) {
 
-                if ( index >= 0 && index < _list.size() ) {
-
-                    Environment.PlcObject ret = Environment.create(_list.get(index));
-                    return ret;
+                    return RETURN;
 
                 }
 
             }
-            else {
-
-                throw new RuntimeException("Not BigInteger offset");
 
-            }
+            return Environment.NIL;
 
         }
+        finally {
 
-        return scope.lookupVariable(ast.getName()).getValue();
+            scope = scope.getParent();
+
+        }
 
     }
 
-    @Override
-    public Environment.PlcObject visit(Ast.Expression.Function ast) {
+    /**
+     * Evaluates the arguments of a call, in order.
+     */
+    private List<Environment.PlcObject> arguments(Ast.Expression.Function ast) {
 
         List<Environment.PlcObject> args = new ArrayList<>();
 
@@ -646,24 +884,31 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         }
 
-        Environment.Function func = scope.lookupFunction(ast.getName(), ast.getArguments().size());
-        return func.invoke(args);
+        return args;
 
     }
 
-    @Override
-    public Environment.PlcObject visit(Ast.Expression.PlcList ast) {
+    /**
+     * Returns the current value of the variable named by an access, ignoring
+     * any offset.
+     */
+    private Environment.PlcObject read(Ast.Expression.Access ast) {
 
+        if ( !resolved ) {
 
-        List<Object> values = new ArrayList<>();
-        for ( int a = 0; a < ast.getValues().size(); a++ ) {
+            return scope.lookupVariable(ast.getName()).getValue();
 
-            Ast.Expression.Literal val = (Ast.Expression.Literal) ast.getValues().get(a);
-            values.add(val.getLiteral());
+        }
+        else if ( ast.getDepth() == 0 ) {
+
+            return frame[ast.getSlot()];
 
         }
+        else {
 
-        return Environment.create(values);
+            return globals[ast.getSlot()].getValue();
+
+        }
 
     }
 
@@ -679,14 +924,114 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * Counts one step against the budget. Steps are taken in batches of up to
+     * {@link #BATCH}, so the budget and cancellation are only checked once
+     * per batch and every other step is a single decrement.
      */
-    public static class Return extends RuntimeException {
+    private void step() {
+        if (--ticks < 0) {
+            refill();
+        }
+    }
+
+    private void refill() {
+        root.poll();
+        if (budget == 0) {
+            throw new Halted("The execution budget of " + root.limit + " steps is exhausted.");
+        }
+        int batch = (int) Math.min(BATCH, budget);
+        budget -= batch;
+        ticks = batch - 1;
+    }
 
-        private final Environment.PlcObject value;
+    /**
+     * Throws {@link Halted} if execution was cancelled, which compiled
+     * functions check on every loop iteration and call.
+     */
+    private void poll() {
+        if (cancelled) {
+            throw new Halted("The execution was cancelled.");
+        }
+    }
+
+    /**
+     * Thrown when execution is cancelled or runs out of budget.
+     */
+    public static final class Halted extends RuntimeException {
+
+        private Halted(String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * Returns the interpreter running function calls on the current thread,
+     * which is this one on the thread that created it.
+     */
+    private Interpreter context() {
+        return Thread.currentThread() == owner ? this : contexts.get();
+    }
+
+    private Frames pool(Ast.Function ast) {
+        return pools.computeIfAbsent(ast, function -> new Frames(function.getFrameSize()));
+    }
+
+    /**
+     * The cases of a switch keyed by their values, built the first time the
+     * switch is executed. Only a switch whose case values are all literals is
+     * dispatched through the table; the first of several equal cases wins.
+     */
+    private static final class Cases {
+
+        private final Map<Object, Ast.Statement.Case> cases = new HashMap<>();
+        private final boolean constant;
+        private Ast.Statement.Case fallback = new Ast.Statement.Case(Optional.empty(), Collections.emptyList());
+
+        private Cases(Ast.Statement.Switch ast) {
+            boolean constant = true;
+            for (Ast.Statement.Case _case : ast.getCases()) {
+                if (!_case.getValue().isPresent()) {
+                    fallback = _case;
+                } else if (_case.getValue().get() instanceof Ast.Expression.Literal) {
+                    cases.putIfAbsent(((Ast.Expression.Literal) _case.getValue().get()).getLiteral(), _case);
+                } else {
+                    constant = false;
+                }
+            }
+            this.constant = constant;
+        }
+
+    }
+
+    /**
+     * The activation frames of one function, sized by the {@link Resolver} and
+     * reused from call to call. A recursive call takes the next frame up the
+     * stack, so every active call still has a frame of its own. Slots are not
+     * cleared between calls since a local is always declared before it is read.
+     */
+    private static final class Frames {
+
+        private final int size;
+        private Environment.PlcObject[][] stack = new Environment.PlcObject[1][];
+        private int active = 0;
+
+        private Frames(int size) {
+            this.size = size;
+        }
+
+        private Environment.PlcObject[] acquire() {
+            if (active == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (stack[active] == null) {
+                stack[active] = new Environment.PlcObject[size];
+            }
+            return stack[active++];
+        }
 
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+        private void release() {
+            active--;
         }
 
     }
@@ -30,6 +30,8 @@ public final class Lexer {
      */
     public List<Token> lex() {
 
+        Events.Lex event = new Events.Lex();
+        event.begin();
 
         List<Token> tokens = new ArrayList<>();
 
@@ -48,6 +50,14 @@ public final class Lexer {
 
         }
 
+        if ( event.shouldCommit() ) {
+
+            event.characters = chars.input.length();
+            event.tokens = tokens.size();
+            event.commit();
+
+        }
+
         return tokens;
 
     }
@@ -0,0 +1,79 @@
+package plc.project;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Walks the statements and expressions of an AST.
+ */
+final class Nodes {
+
+    private Nodes() {}
+
+    /**
+     * Calls {@code action} for every statement and expression of {@code ast}
+     * (including global initializers) in source order, outer nodes first.
+     */
+    static void forEach(Ast.Source ast, Consumer<Ast> action) {
+        for (Ast.Global global : ast.getGlobals()) {
+            global.getValue().ifPresent(value -> forEach(value, action));
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            forEach(function.getStatements(), action);
+        }
+    }
+
+    /**
+     * Returns the number of statements and expressions in {@code ast}.
+     */
+    static int count(Ast.Source ast) {
+        int[] count = new int[1];
+        forEach(ast, node -> count[0]++);
+        return count[0];
+    }
+
+    private static void forEach(List<? extends Ast> asts, Consumer<Ast> action) {
+        for (Ast ast : asts) {
+            forEach(ast, action);
+        }
+    }
+
+    static void forEach(Ast ast, Consumer<Ast> action) {
+        action.accept(ast);
+        if (ast instanceof Ast.Statement.Expression) {
+            forEach(((Ast.Statement.Expression) ast).getExpression(), action);
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            ((Ast.Statement.Declaration) ast).getValue().ifPresent(value -> forEach(value, action));
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            forEach(((Ast.Statement.Assignment) ast).getReceiver(), action);
+            forEach(((Ast.Statement.Assignment) ast).getValue(), action);
+        } else if (ast instanceof Ast.Statement.If) {
+            forEach(((Ast.Statement.If) ast).getCondition(), action);
+            forEach(((Ast.Statement.If) ast).getThenStatements(), action);
+            forEach(((Ast.Statement.If) ast).getElseStatements(), action);
+        } else if (ast instanceof Ast.Statement.Switch) {
+            forEach(((Ast.Statement.Switch) ast).getCondition(), action);
+            forEach(((Ast.Statement.Switch) ast).getCases(), action);
+        } else if (ast instanceof Ast.Statement.Case) {
+            ((Ast.Statement.Case) ast).getValue().ifPresent(value -> forEach(value, action));
+            forEach(((Ast.Statement.Case) ast).getStatements(), action);
+        } else if (ast instanceof Ast.Statement.While) {
+            forEach(((Ast.Statement.While) ast).getCondition(), action);
+            forEach(((Ast.Statement.While) ast).getStatements(), action);
+        } else if (ast instanceof Ast.Statement.Return) {
+            forEach(((Ast.Statement.Return) ast).getValue(), action);
+        } else if (ast instanceof Ast.Expression.Group) {
+            forEach(((Ast.Expression.Group) ast).getExpression(), action);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            forEach(((Ast.Expression.Binary) ast).getLeft(), action);
+            forEach(((Ast.Expression.Binary) ast).getRight(), action);
+        } else if (ast instanceof Ast.Expression.Access) {
+            ((Ast.Expression.Access) ast).getOffset().ifPresent(offset -> forEach(offset, action));
+        } else if (ast instanceof Ast.Expression.Function) {
+            forEach(((Ast.Expression.Function) ast).getArguments(), action);
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            forEach(((Ast.Expression.PlcList) ast).getValues(), action);
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Semantics of the strict binary operators on runtime values, shared by the
+ * {@link Interpreter} and by passes that evaluate expressions ahead of time so
+ * the two can never disagree. The logical operators {@code &&} and {@code ||}
+ * control evaluation of their operands and are handled by the callers.
+ */
+public final class Operators {
+
+    private Operators() {}
+
+    /**
+     * Applies {@code operator} to two runtime values. When both are Integers
+     * that fit in a {@code long} the result is computed on primitives; overflow
+     * and every other case fall back to {@link #apply(String, Object, Object)},
+     * so the result is always the same as computing with {@link BigInteger}.
+     */
+    public static Environment.PlcObject apply(String operator, Environment.PlcObject LHS, Environment.PlcObject RHS) {
+
+        if ( LHS.isLong() && RHS.isLong() ) {
+
+            long left = LHS.getLong();
+            long right = RHS.getLong();
+
+            try {
+
+                switch ( operator ) {
+
+                    case "+":
+                        return Environment.createInteger(Math.addExact(left, right));
+                    case "-":
+                        return Environment.createInteger(Math.subtractExact(left, right));
+                    case "*":
+                        return Environment.createInteger(Math.multiplyExact(left, right));
+                    case "/":
+                        if ( right != 0 ) {
+                            return Environment.createInteger(Math.divideExact(left, right));
+                        }
+                        break;
+                    case "<":
+                        return Environment.create(left < right);
+                    case "<=":
+                        return Environment.create(left <= right);
+                    case ">":
+                        return Environment.create(left > right);
+                    case ">=":
+                        return Environment.create(left >= right);
+                    case "==":
+                        return Environment.create(left == right);
+                    case "!=":
+                        return Environment.create(left != right);
+
+                }
+
+            }
+            catch ( ArithmeticException overflow ) {
+
+                // recomputed below with BigInteger
+
+            }
+
+        }
+
+        return Environment.create(apply(operator, LHS.getValue(), RHS.getValue()));
+
+    }
+
+    /**
+     * Applies {@code operator} to two values, throwing a {@link RuntimeException}
+     * if the operator is unknown or does not apply to the operand types.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object apply(String operator, Object LHS, Object RHS) {
+
+        if ( operator.equals("+") ) {
+
+            if ( LHS instanceof String || RHS instanceof String ) {
+
+                return LHS.toString() + RHS.toString();
+
+            }
+            else if ( LHS instanceof BigInteger && RHS instanceof BigInteger ) {
+
+                return ((BigInteger) LHS).add((BigInteger) RHS);
+
+            }
+            else if ( LHS instanceof BigDecimal && RHS instanceof BigDecimal ) {
+
+                return ((BigDecimal) LHS).add((BigDecimal) RHS);
+
+            }
+
+        }
+        else if ( operator.equals("-") ) {
+
+            if ( LHS instanceof BigInteger && RHS instanceof BigInteger ) {
+
+                return ((BigInteger) LHS).subtract((BigInteger) RHS);
+
+            }
+            else if ( LHS instanceof BigDecimal && RHS instanceof BigDecimal ) {
+
+                return ((BigDecimal) LHS).subtract((BigDecimal) RHS);
+
+            }
+
+        }
+        else if ( operator.equals("*") ) {
+
+            if ( LHS instanceof BigInteger && RHS instanceof BigInteger ) {
+
+                return ((BigInteger) LHS).multiply((BigInteger) RHS);
+
+            }
+            else if ( LHS instanceof BigDecimal && RHS instanceof BigDecimal ) {
+
+                return ((BigDecimal) LHS).multiply((BigDecimal) RHS);
+
+            }
+
+        }
+        else if ( operator.equals("/") ) {
+
+            if ( LHS instanceof BigInteger && RHS instanceof BigInteger ) {
+
+                return ((BigInteger) LHS).divide((BigInteger) RHS);
+
+            }
+            else if ( LHS instanceof BigDecimal && RHS instanceof BigDecimal ) {
+
+                return ((BigDecimal) LHS).divide((BigDecimal) RHS, RoundingMode.HALF_EVEN);
+
+            }
+
+        }
+        else if ( operator.equals("^") ) {
+
+            if ( LHS instanceof BigInteger && RHS instanceof BigInteger ) {
+
+                BigInteger result = (BigInteger) LHS;
+
+                for ( int a = 0; a < ((BigInteger) RHS).intValue(); a++ ) {
+
+                    result.multiply(result);
+
+                }
+
+                return result;
+
+            }
+
+        }
+        else if ( operator.equals("<") || operator.equals("<=") || operator.equals(">") || operator.equals(">=") ) {
+
+            if ( LHS instanceof Comparable<?> && RHS instanceof Comparable<?> ) {
+
+                int comparison = ((Comparable<Object>) LHS).compareTo(RHS);
+
+                if ( operator.equals("<") ) {
+
+                    return comparison < 0;
+
+                }
+                else if ( operator.equals("<=") ) {
+
+                    return comparison <= 0;
+
+                }
+                else if ( operator.equals(">") ) {
+
+                    return comparison > 0;
+
+                }
+                else {
+
+                    return comparison >= 0;
+
+                }
+
+            }
+
+        }
+        else if ( operator.equals("==") ) {
+
+            return LHS.equals(RHS);
+
+        }
+        else if ( operator.equals("!=") ) {
+
+            return !LHS.equals(RHS);
+
+        }
+
+        throw new RuntimeException("Wrong types");
+
+    }
+
+}
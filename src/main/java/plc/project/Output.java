@@ -0,0 +1,89 @@
+package plc.project;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A buffered sink for the output of {@code print}, written as UTF-8 to an
+ * {@link OutputStream} or a {@link WritableByteChannel}.
+ *
+ * Lines are collected in memory and only written once the buffer is full or
+ * on {@link #flush()}, which the {@link Interpreter} calls when the program
+ * ends, so printing does not lock and flush a stream for every line. Lines are
+ * always written in the order they were printed.
+ */
+public final class Output implements Flushable {
+
+    public static final int DEFAULT_SIZE = 1 << 16;
+
+    private static final String SEPARATOR = System.lineSeparator();
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private final int size;
+    private final StringBuilder buffer;
+
+    public Output(OutputStream stream) {
+        this(stream, DEFAULT_SIZE);
+    }
+
+    /**
+     * Writes to {@code stream}, flushing it once the buffered output reaches
+     * {@code size} characters.
+     */
+    public Output(OutputStream stream, int size) {
+        this(stream, null, size);
+    }
+
+    public Output(WritableByteChannel channel, int size) {
+        this(null, channel, size);
+    }
+
+    private Output(OutputStream stream, WritableByteChannel channel, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The buffer size must be positive.");
+        }
+        this.stream = stream;
+        this.channel = channel;
+        this.size = size;
+        this.buffer = new StringBuilder(size + 256);
+    }
+
+    public synchronized void println(Object value) {
+        buffer.append(value).append(SEPARATOR);
+        if (buffer.length() >= size) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes out everything buffered so far.
+     */
+    @Override
+    public synchronized void flush() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        buffer.setLength(0);
+        try {
+            if (stream != null) {
+                stream.write(bytes);
+                stream.flush();
+            } else {
+                ByteBuffer remaining = ByteBuffer.wrap(bytes);
+                while (remaining.hasRemaining()) {
+                    channel.write(remaining);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -51,6 +51,8 @@ public final class Parser {
 
         List<Ast.Global> globals = new ArrayList<>();
         List<Ast.Function> functions = new ArrayList<>();
+        Events.Parse event = new Events.Parse();
+        event.begin();
 
         try {
 
@@ -76,7 +78,17 @@ public final class Parser {
 
             if ( !tokens.has(0) ) {
 
-                return new Ast.Source(globals, functions);
+                Ast.Source source = new Ast.Source(globals, functions);
+
+                if ( event.shouldCommit() ) {
+
+                    event.tokens = tokens.tokens.size();
+                    event.nodes = Nodes.count(source);
+                    event.commit();
+
+                }
+
+                return source;
 
             }
             else {
@@ -408,6 +420,7 @@ public final class Parser {
             List<String> parameterTypes = new ArrayList<>();
             List<String> parameters = new ArrayList<>();
             List<Ast.Statement> statements = new ArrayList<>();
+            int index = tokens.get(0).getIndex();
 
             match("FUN");
 
@@ -538,7 +551,9 @@ public final class Parser {
 
             }
 
-            return new Ast.Function(name, parameters, parameterTypes, Optional.of(type), statements);
+            Ast.Function function = new Ast.Function(name, parameters, parameterTypes, Optional.of(type), statements);
+            function.setIndex(index);
+            return function;
 
         }
         catch (ParseException p) {
@@ -586,6 +601,7 @@ public final class Parser {
         try {
 
             Ast.Statement statement;
+            int index = tokens.get(0).getIndex();
 
             if ( peek("LET") ) {
 
@@ -643,6 +659,7 @@ public final class Parser {
 
                     }
                     statement = new Ast.Statement.Assignment(leftSide, assignment);
+                    statement.setIndex(index);
 
                     return statement;
 
@@ -663,6 +680,7 @@ public final class Parser {
 
             }
 
+            statement.setIndex(index);
             return statement;
 
         }
@@ -835,28 +853,23 @@ public final class Parser {
 
             condition = parseExpression();
 
-            if ( peek("CASE" ) || peek("DEFAULT") ) {
+            while ( peek("CASE") ) {
 
-                while ( peek("CASE") ) {
+                cases.add(parseCaseStatement());
 
-                    cases.add(parseCaseStatement());
-
-                }
-
-                if ( peek("DEFAULT") ) {
+            }
 
-                    cases.add(parseCaseStatement());
+            if ( peek("DEFAULT") ) {
 
-                }
+                cases.add(parseCaseStatement());
 
             }
             else {
 
-                throw PEHelper("Missing CASE");
+                throw PEHelper("Missing DEFAULT");
 
             }
 
-            cases.add(parseCaseStatement());
             if ( peek("END") ) {
 
                 match("END");
@@ -929,6 +942,7 @@ public final class Parser {
 
         try {
 
+            int index = tokens.get(0).getIndex();
             match("WHILE");
 
             Ast.Expression value;
@@ -958,7 +972,9 @@ public final class Parser {
 
             }
 
-            return new Ast.Statement.While(value, statements);
+            Ast.Statement.While loop = new Ast.Statement.While(value, statements);
+            loop.setIndex(index);
+            return loop;
 
         }
         catch (ParseException p) {
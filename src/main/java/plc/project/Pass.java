@@ -0,0 +1,16 @@
+package plc.project;
+
+/**
+ * A transformation over an analyzed {@link Ast.Source}, run between the
+ * {@link Analyzer} and a back end ({@link Interpreter} or {@link Generator}).
+ * Passes are composed and timed by a {@link Pipeline}.
+ */
+public interface Pass {
+
+    Ast.Source apply(Ast.Source source);
+
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+}
@@ -0,0 +1,45 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a sequence of {@link Pass}es over an analyzed source, feeding the output
+ * of each pass into the next and recording how long each one took.
+ */
+public final class Pipeline {
+
+    private final List<Pass> passes = new ArrayList<>();
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+
+    public Pipeline add(Pass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    public List<Pass> getPasses() {
+        return Collections.unmodifiableList(passes);
+    }
+
+    public Ast.Source run(Ast.Source source) {
+        timings.clear();
+        for (Pass pass : passes) {
+            long start = System.nanoTime();
+            source = pass.apply(source);
+            timings.merge(pass.getName(), System.nanoTime() - start, Long::sum);
+        }
+        return source;
+    }
+
+    /**
+     * Returns the time spent in each pass during the last {@link #run}, in
+     * nanoseconds, keyed by pass name in execution order.
+     */
+    public Map<String, Long> getTimings() {
+        return Collections.unmodifiableMap(timings);
+    }
+
+}
@@ -0,0 +1,163 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A sampling profiler for PLC programs run by the {@link Interpreter}.
+ *
+ * While profiling, the interpreter keeps a shadow stack for each thread it
+ * runs on, with a frame for every active function call (named after the
+ * function) and {@code WHILE} loop (named after its index in the source).
+ * A background thread takes a snapshot of every stack at a fixed interval and
+ * counts how often each one was seen, which {@link #writeCollapsed} writes in
+ * the collapsed format read by flamegraph tools, one stack per line:
+ * {@code main;fib;fib 42}.
+ *
+ * Stacks are read without locking the threads that push to them, so a
+ * sample can occasionally be taken halfway through a call or return.
+ */
+public final class Profiler implements AutoCloseable {
+
+    private final long interval;
+    private final List<Stack> stacks = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> samples = new TreeMap<>();
+    private Thread sampler = null;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a profiler taking a sample every {@code interval} microseconds
+     * once started.
+     */
+    public Profiler(long interval) {
+        this.interval = TimeUnit.MICROSECONDS.toNanos(interval);
+    }
+
+    public synchronized void start() {
+        if (sampler == null) {
+            running = true;
+            sampler = new Thread(this::sample, "plc-profiler");
+            sampler.setDaemon(true);
+            sampler.start();
+        }
+    }
+
+    /**
+     * Stops sampling and waits for the sampler thread to finish.
+     */
+    public synchronized void stop() {
+        if (sampler != null) {
+            running = false;
+            LockSupport.unpark(sampler);
+            try {
+                sampler.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sampler = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Returns how many times each stack was sampled, keyed by its frames
+     * joined with {@code ;} from the outermost.
+     */
+    public Map<String, Long> getSamples() {
+        synchronized (samples) {
+            return new TreeMap<>(samples);
+        }
+    }
+
+    /**
+     * Writes the samples in collapsed-stack format.
+     */
+    public void writeCollapsed(Writer writer) {
+        try {
+            for (Map.Entry<String, Long> entry : getSamples().entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue() + System.lineSeparator());
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a new shadow stack for {@code thread}.
+     */
+    Stack register(Thread thread) {
+        Stack stack = new Stack(thread);
+        stacks.add(stack);
+        return stack;
+    }
+
+    private void sample() {
+        StringBuilder builder = new StringBuilder();
+        while (running) {
+            LockSupport.parkNanos(interval);
+            for (Stack stack : stacks) {
+                if (!stack.thread.isAlive()) {
+                    stacks.remove(stack);
+                    continue;
+                }
+                String[] frames = stack.frames;
+                int depth = Math.min(stack.depth, frames.length);
+                if (depth == 0) {
+                    continue;
+                }
+                builder.setLength(0);
+                for (int i = 0; i < depth; i++) {
+                    if (i > 0) {
+                        builder.append(';');
+                    }
+                    builder.append(frames[i]);
+                }
+                synchronized (samples) {
+                    samples.merge(builder.toString(), 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * The shadow stack of one thread, pushed and popped only by that thread.
+     * The depth is volatile so that a frame is written before it is counted,
+     * and so the JIT does not fold away a push and its pop.
+     */
+    static final class Stack {
+
+        private final Thread thread;
+        private volatile String[] frames = new String[16];
+        private volatile int depth = 0;
+
+        private Stack(Thread thread) {
+            this.thread = thread;
+        }
+
+        void push(String frame) {
+            if (depth == frames.length) {
+                frames = Arrays.copyOf(frames, depth * 2);
+            }
+            frames[depth++] = frame;
+        }
+
+        void pop() {
+            depth--;
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package plc.project;
+
+/**
+ * A source that has been lexed, parsed, analyzed and resolved once, and can
+ * then be run any number of times, including concurrently.
+ *
+ * The prepared AST is never modified after {@link #prepare}. Every run gets a
+ * new {@link Interpreter}, so globals start over with their initial values
+ * and nothing one run does is seen by another.
+ */
+public final class Program {
+
+    private final Ast.Source ast;
+
+    private Program(Ast.Source ast) {
+        this.ast = ast;
+    }
+
+    public static Program prepare(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return new Program(new Resolver().apply(ast));
+    }
+
+    public Ast.Source getAst() {
+        return ast;
+    }
+
+    /**
+     * Creates an interpreter with its own globals initialized and every
+     * function defined, for calling functions other than {@code main}.
+     */
+    public Interpreter instantiate() {
+        Interpreter interpreter = new Interpreter(new Scope(null), true);
+        interpreter.load(ast);
+        return interpreter;
+    }
+
+    /**
+     * Runs {@code main} with globals of its own, returning its result.
+     */
+    public Environment.PlcObject run() {
+        return new Interpreter(new Scope(null), true).visit(ast);
+    }
+
+    /**
+     * Runs {@code main} like {@link #run()}, sending printed lines to
+     * {@code output}.
+     */
+    public Environment.PlcObject run(Output output) {
+        Interpreter interpreter = new Interpreter(new Scope(null), true);
+        interpreter.setOutput(output);
+        return interpreter.visit(ast);
+    }
+
+}
@@ -0,0 +1,154 @@
+package plc.project;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the functions of a source whose result depends only on their
+ * arguments: they read only their parameters, their own locals and immutable
+ * globals, assign only to locals, and call only other pure functions (so never
+ * {@code print}). Such functions can be memoized by the {@link Interpreter}.
+ *
+ * Lists are mutable and can be shared with the caller, so any function that
+ * creates or indexes a list, or reads a global list, is treated as impure.
+ */
+public final class Purity {
+
+    private Purity() {}
+
+    /**
+     * Returns the pure functions of {@code ast}, compared by identity.
+     */
+    public static Set<Ast.Function> getPureFunctions(Ast.Source ast) {
+        Set<String> constants = new HashSet<>();
+        for (Ast.Global global : ast.getGlobals()) {
+            if (!global.getMutable() && !(global.getValue().orElse(null) instanceof Ast.Expression.PlcList)) {
+                constants.add(global.getName());
+            }
+        }
+        Map<String, Ast.Function> functions = new HashMap<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.put(function.getName() + "/" + function.getParameters().size(), function);
+        }
+        // start by assuming every function is pure, then drop those calling an
+        // impure one until nothing changes, so (mutually) recursive functions stay pure
+        Set<Ast.Function> pure = Collections.newSetFromMap(new IdentityHashMap<>());
+        pure.addAll(functions.values());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Ast.Function function : ast.getFunctions()) {
+                if (pure.contains(function) && !new Checker(constants, functions, pure).isPure(function)) {
+                    pure.remove(function);
+                    changed = true;
+                }
+            }
+        }
+        return pure;
+    }
+
+    private static final class Checker {
+
+        private final Set<String> constants;
+        private final Map<String, Ast.Function> functions;
+        private final Set<Ast.Function> pure;
+
+        private Checker(Set<String> constants, Map<String, Ast.Function> functions, Set<Ast.Function> pure) {
+            this.constants = constants;
+            this.functions = functions;
+            this.pure = pure;
+        }
+
+        private boolean isPure(Ast.Function function) {
+            return isPure(function.getStatements(), new HashSet<>(function.getParameters()));
+        }
+
+        /**
+         * Checks a block, where {@code locals} are the names visible in it;
+         * declarations are added to a copy, so they go out of scope at the end.
+         */
+        private boolean isPure(List<Ast.Statement> statements, Set<String> locals) {
+            Set<String> scope = new HashSet<>(locals);
+            for (Ast.Statement statement : statements) {
+                if (!isPure(statement, scope)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isPure(Ast.Statement statement, Set<String> locals) {
+            if (statement instanceof Ast.Statement.Expression) {
+                return isPure(((Ast.Statement.Expression) statement).getExpression(), locals);
+            } else if (statement instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration ast = (Ast.Statement.Declaration) statement;
+                if (ast.getValue().isPresent() && !isPure(ast.getValue().get(), locals)) {
+                    return false;
+                }
+                locals.add(ast.getName());
+                return true;
+            } else if (statement instanceof Ast.Statement.Assignment) {
+                Ast.Statement.Assignment ast = (Ast.Statement.Assignment) statement;
+                if (!(ast.getReceiver() instanceof Ast.Expression.Access)) {
+                    return false;
+                }
+                Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+                return !receiver.getOffset().isPresent() && locals.contains(receiver.getName()) && isPure(ast.getValue(), locals);
+            } else if (statement instanceof Ast.Statement.If) {
+                Ast.Statement.If ast = (Ast.Statement.If) statement;
+                return isPure(ast.getCondition(), locals) && isPure(ast.getThenStatements(), locals) && isPure(ast.getElseStatements(), locals);
+            } else if (statement instanceof Ast.Statement.Switch) {
+                Ast.Statement.Switch ast = (Ast.Statement.Switch) statement;
+                if (!isPure(ast.getCondition(), locals)) {
+                    return false;
+                }
+                for (Ast.Statement.Case _case : ast.getCases()) {
+                    if (_case.getValue().isPresent() && !isPure(_case.getValue().get(), locals) || !isPure(_case.getStatements(), locals)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (statement instanceof Ast.Statement.While) {
+                Ast.Statement.While ast = (Ast.Statement.While) statement;
+                return isPure(ast.getCondition(), locals) && isPure(ast.getStatements(), locals);
+            } else if (statement instanceof Ast.Statement.Return) {
+                return isPure(((Ast.Statement.Return) statement).getValue(), locals);
+            }
+            return false;
+        }
+
+        private boolean isPure(Ast.Expression expression, Set<String> locals) {
+            if (expression instanceof Ast.Expression.Literal) {
+                return true;
+            } else if (expression instanceof Ast.Expression.Group) {
+                return isPure(((Ast.Expression.Group) expression).getExpression(), locals);
+            } else if (expression instanceof Ast.Expression.Binary) {
+                Ast.Expression.Binary ast = (Ast.Expression.Binary) expression;
+                return isPure(ast.getLeft(), locals) && isPure(ast.getRight(), locals);
+            } else if (expression instanceof Ast.Expression.Access) {
+                Ast.Expression.Access ast = (Ast.Expression.Access) expression;
+                return !ast.getOffset().isPresent() && (locals.contains(ast.getName()) || constants.contains(ast.getName()));
+            } else if (expression instanceof Ast.Expression.Function) {
+                Ast.Expression.Function ast = (Ast.Expression.Function) expression;
+                Ast.Function function = functions.get(ast.getName() + "/" + ast.getArguments().size());
+                if (function == null || !pure.contains(function)) {
+                    return false;
+                }
+                for (Ast.Expression argument : ast.getArguments()) {
+                    if (!isPure(argument, locals)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
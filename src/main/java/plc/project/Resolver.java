@@ -0,0 +1,318 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves every variable reference to a (depth, slot) coordinate so it can be
+ * read without any name lookup at runtime.
+ *
+ * Each function call gets a single frame: parameters take the first slots and
+ * every local declaration gets the next free slot, with the slots of a block's
+ * locals reused once the block ends. Depth 0 is the enclosing function's frame
+ * and depth 1 is the global frame, which holds the globals in source order.
+ * The results are recorded on {@link Ast.Global}, {@link Ast.Function} (frame
+ * size), {@link Ast.Statement.Declaration} and {@link Ast.Expression.Access}.
+ */
+public final class Resolver implements Ast.Visitor<Void>, Pass {
+
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final Deque<Map<String, Integer>> blocks = new ArrayDeque<>();
+    private int next = 0;
+    private int size = 0;
+
+    @Override
+    public Ast.Source apply(Ast.Source source) {
+        visit(source);
+        return source;
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+
+        globals.clear();
+
+        for ( Ast.Global global : ast.getGlobals() ) {
+
+            visit(global);
+
+        }
+
+        for ( Ast.Function function : ast.getFunctions() ) {
+
+            visit(function);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+
+        if ( ast.getValue().isPresent() ) {
+
+            visit(ast.getValue().get());
+
+        }
+
+        if ( globals.containsKey(ast.getName()) ) {
+
+            throw new RuntimeException("The variable " + ast.getName() + " is already defined in this scope.");
+
+        }
+
+        ast.setSlot(globals.size());
+        globals.put(ast.getName(), ast.getSlot());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+
+        next = 0;
+        size = 0;
+
+        try {
+
+            blocks.push(new HashMap<>());
+
+            for ( String parameter : ast.getParameters() ) {
+
+                define(parameter);
+
+            }
+
+            for ( Ast.Statement statement : ast.getStatements() ) {
+
+                visit(statement);
+
+            }
+
+        }
+        finally {
+
+            blocks.pop();
+
+        }
+
+        ast.setFrameSize(size);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+
+        visit(ast.getExpression());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+
+        if ( ast.getValue().isPresent() ) {
+
+            visit(ast.getValue().get());
+
+        }
+
+        ast.setSlot(define(ast.getName()));
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+
+        visit(ast.getCondition());
+        block(ast.getThenStatements());
+        block(ast.getElseStatements());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+
+        visit(ast.getCondition());
+
+        for ( Ast.Statement.Case _case : ast.getCases() ) {
+
+            visit(_case);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+
+        if ( ast.getValue().isPresent() ) {
+
+            visit(ast.getValue().get());
+
+        }
+
+        block(ast.getStatements());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+
+        visit(ast.getCondition());
+        block(ast.getStatements());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+
+        visit(ast.getValue());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+
+        visit(ast.getExpression());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+
+        if ( ast.getOffset().isPresent() ) {
+
+            visit(ast.getOffset().get());
+
+        }
+
+        for ( Map<String, Integer> block : blocks ) {
+
+            if ( block.containsKey(ast.getName()) ) {
+
+                ast.setSlot(0, block.get(ast.getName()));
+                return null;
+
+            }
+
+        }
+
+        if ( globals.containsKey(ast.getName()) ) {
+
+            ast.setSlot(1, globals.get(ast.getName()));
+            return null;
+
+        }
+
+        throw new RuntimeException("The variable " + ast.getName() + " is not defined in this scope.");
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+
+        for ( Ast.Expression argument : ast.getArguments() ) {
+
+            visit(argument);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+
+        for ( Ast.Expression value : ast.getValues() ) {
+
+            visit(value);
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Resolves a nested block, releasing the slots of its locals afterwards so
+     * they can be reused by the blocks that follow.
+     */
+    private void block(Iterable<Ast.Statement> statements) {
+
+        int start = next;
+
+        try {
+
+            blocks.push(new HashMap<>());
+
+            for ( Ast.Statement statement : statements ) {
+
+                visit(statement);
+
+            }
+
+        }
+        finally {
+
+            blocks.pop();
+            next = start;
+
+        }
+
+    }
+
+    private int define(String name) {
+
+        if ( blocks.peek().containsKey(name) ) {
+
+            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+
+        }
+
+        blocks.peek().put(name, next);
+        size = Math.max(size, next + 1);
+        return next++;
+
+    }
+
+}
@@ -0,0 +1,359 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Base class for passes that transform an analyzed AST. Every visit method
+ * returns either the node it was given, when none of its children changed, or
+ * a rebuilt copy carrying over the annotations set by the {@link Analyzer} and
+ * {@link Resolver}, so only the spine above a rewritten node is reallocated.
+ *
+ * Subclasses override the visit methods for the nodes they care about and call
+ * {@code super} (or the {@code rewrite} helpers) to rewrite the children.
+ */
+public abstract class Rewriter implements Ast.Visitor<Ast>, Pass {
+
+    @Override
+    public Ast.Source apply(Ast.Source source) {
+        return (Ast.Source) visit(source);
+    }
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+
+        List<Ast.Global> globals = rewriteAll(ast.getGlobals());
+        List<Ast.Function> functions = rewriteAll(ast.getFunctions());
+
+        if ( globals == ast.getGlobals() && functions == ast.getFunctions() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Source(globals, functions);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Global ast) {
+
+        Optional<Ast.Expression> value = rewrite(ast.getValue());
+
+        if ( value == ast.getValue() ) {
+
+            return ast;
+
+        }
+
+        Ast.Global global = new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), value);
+        global.setVariable(ast.getVariable());
+        global.setSlot(ast.getSlot());
+        return global;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Function ast) {
+
+        List<Ast.Statement> statements = rewriteStatements(ast.getStatements());
+
+        if ( statements == ast.getStatements() ) {
+
+            return ast;
+
+        }
+
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        function.setFunction(ast.getFunction());
+        function.setFrameSize(ast.getFrameSize());
+        return function;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Expression ast) {
+
+        Ast.Expression expression = rewrite(ast.getExpression());
+
+        if ( expression == ast.getExpression() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.Expression(expression);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Declaration ast) {
+
+        Optional<Ast.Expression> value = rewrite(ast.getValue());
+
+        if ( value == ast.getValue() ) {
+
+            return ast;
+
+        }
+
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), value);
+        declaration.setVariable(ast.getVariable());
+        declaration.setSlot(ast.getSlot());
+        return declaration;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Assignment ast) {
+
+        Ast.Expression receiver = rewrite(ast.getReceiver());
+        Ast.Expression value = rewrite(ast.getValue());
+
+        if ( receiver == ast.getReceiver() && value == ast.getValue() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.Assignment(receiver, value);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.If ast) {
+
+        Ast.Expression condition = rewrite(ast.getCondition());
+        List<Ast.Statement> thenStatements = rewriteStatements(ast.getThenStatements());
+        List<Ast.Statement> elseStatements = rewriteStatements(ast.getElseStatements());
+
+        if ( condition == ast.getCondition() && thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.If(condition, thenStatements, elseStatements);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Switch ast) {
+
+        Ast.Expression condition = rewrite(ast.getCondition());
+        List<Ast.Statement.Case> cases = rewriteAll(ast.getCases());
+
+        if ( condition == ast.getCondition() && cases == ast.getCases() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.Switch(condition, cases);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Case ast) {
+
+        Optional<Ast.Expression> value = rewrite(ast.getValue());
+        List<Ast.Statement> statements = rewriteStatements(ast.getStatements());
+
+        if ( value == ast.getValue() && statements == ast.getStatements() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.Case(value, statements);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.While ast) {
+
+        Ast.Expression condition = rewrite(ast.getCondition());
+        List<Ast.Statement> statements = rewriteStatements(ast.getStatements());
+
+        if ( condition == ast.getCondition() && statements == ast.getStatements() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.While(condition, statements);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Statement.Return ast) {
+
+        Ast.Expression value = rewrite(ast.getValue());
+
+        if ( value == ast.getValue() ) {
+
+            return ast;
+
+        }
+
+        return new Ast.Statement.Return(value);
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Literal ast) {
+
+        return ast;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Group ast) {
+
+        Ast.Expression expression = rewrite(ast.getExpression());
+
+        if ( expression == ast.getExpression() ) {
+
+            return ast;
+
+        }
+
+        Ast.Expression.Group group = new Ast.Expression.Group(expression);
+        group.setType(ast.getType());
+        return group;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Binary ast) {
+
+        Ast.Expression left = rewrite(ast.getLeft());
+        Ast.Expression right = rewrite(ast.getRight());
+
+        if ( left == ast.getLeft() && right == ast.getRight() ) {
+
+            return ast;
+
+        }
+
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(ast.getOperator(), left, right);
+        binary.setType(ast.getType());
+        return binary;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Access ast) {
+
+        Optional<Ast.Expression> offset = rewrite(ast.getOffset());
+
+        if ( offset == ast.getOffset() ) {
+
+            return ast;
+
+        }
+
+        Ast.Expression.Access access = new Ast.Expression.Access(offset, ast.getName());
+        access.setVariable(ast.getVariable());
+        access.setSlot(ast.getDepth(), ast.getSlot());
+        return access;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.Function ast) {
+
+        List<Ast.Expression> arguments = rewriteAll(ast.getArguments());
+
+        if ( arguments == ast.getArguments() ) {
+
+            return ast;
+
+        }
+
+        Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+        return function;
+
+    }
+
+    @Override
+    public Ast visit(Ast.Expression.PlcList ast) {
+
+        List<Ast.Expression> values = rewriteAll(ast.getValues());
+
+        if ( values == ast.getValues() ) {
+
+            return ast;
+
+        }
+
+        Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+        list.setType(ast.getType());
+        return list;
+
+    }
+
+    protected Ast.Expression rewrite(Ast.Expression ast) {
+        return (Ast.Expression) visit(ast);
+    }
+
+    protected Optional<Ast.Expression> rewrite(Optional<Ast.Expression> ast) {
+
+        if ( ast.isPresent() ) {
+
+            Ast.Expression expression = rewrite(ast.get());
+
+            if ( expression != ast.get() ) {
+
+                return Optional.of(expression);
+
+            }
+
+        }
+
+        return ast;
+
+    }
+
+    /**
+     * Rewrites a block of statements. Passes that remove or splice statements
+     * override this; the default rewrites each statement in place.
+     */
+    protected List<Ast.Statement> rewriteStatements(List<Ast.Statement> statements) {
+        return rewriteAll(statements);
+    }
+
+    /**
+     * Rewrites each node of a list, returning the original list if no element
+     * changed so callers can detect an unchanged child by identity.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends Ast> List<T> rewriteAll(List<T> nodes) {
+
+        List<T> rewritten = null;
+
+        for ( int a = 0; a < nodes.size(); a++ ) {
+
+            T node = (T) visit(nodes.get(a));
+
+            if ( rewritten == null && node != nodes.get(a) ) {
+
+                rewritten = new ArrayList<>(nodes.subList(0, a));
+
+            }
+
+            if ( rewritten != null ) {
+
+                rewritten.add(node);
+
+            }
+
+        }
+
+        return rewritten == null ? nodes : rewritten;
+
+    }
+
+}
@@ -53,12 +53,41 @@ public final class Scope {
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size())) {
-            throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
+        return defineFunction(new Environment.Function(name, jvmName, parameterTypes, returnType, function));
+    }
+
+    /*
+     * The arity-specific overloads below define functions that are called
+     * with their arguments directly rather than in a list.
+     */
+
+    public void defineFunction(String name, Environment.Function.Nullary function) {
+        defineFunction(new Environment.Function(name, function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Unary function) {
+        defineFunction(new Environment.Function(name, function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Binary function) {
+        defineFunction(new Environment.Function(name, function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Ternary function) {
+        defineFunction(new Environment.Function(name, function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Quaternary function) {
+        defineFunction(new Environment.Function(name, function));
+    }
+
+    private Environment.Function defineFunction(Environment.Function function) {
+        String key = function.getName() + "/" + function.getArity();
+        if (functions.containsKey(key)) {
+            throw new RuntimeException("The function " + key + " is already defined in this scope.");
         } else {
-            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
-            functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
-            return func;
+            functions.put(key, function);
+            return function;
         }
     }
 
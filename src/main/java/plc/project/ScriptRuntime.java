@@ -0,0 +1,136 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs {@link Program}s for many requests at once, each on a virtual thread of
+ * its own with globals of its own, and records how long every request took
+ * from submission to completion.
+ *
+ * Latencies are kept for the most recent {@value #SAMPLES} requests, which
+ * the percentiles of {@link #getMetrics()} are computed from; the count,
+ * failures and maximum cover every request.
+ */
+public final class ScriptRuntime implements AutoCloseable {
+
+    private static final int SAMPLES = 10_000;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long[] samples = new long[SAMPLES];
+    private long count = 0;
+    private long failures = 0;
+    private long max = 0;
+
+    /**
+     * Runs {@code main} of {@code program} on a new virtual thread.
+     */
+    public CompletableFuture<Environment.PlcObject> submit(Program program) {
+        return submit(program, null);
+    }
+
+    /**
+     * Runs {@code main} of {@code program} on a new virtual thread, sending
+     * printed lines to {@code output} if it is not null.
+     */
+    public CompletableFuture<Environment.PlcObject> submit(Program program, Output output) {
+        long start = System.nanoTime();
+        CompletableFuture<Environment.PlcObject> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                Environment.PlcObject value = output != null ? program.run(output) : program.run();
+                record(System.nanoTime() - start, false);
+                result.complete(value);
+            } catch (RuntimeException | Error e) {
+                record(System.nanoTime() - start, true);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private synchronized void record(long latency, boolean failed) {
+        samples[(int) (count % SAMPLES)] = latency;
+        count++;
+        if (failed) {
+            failures++;
+        }
+        max = Math.max(max, latency);
+    }
+
+    public synchronized Metrics getMetrics() {
+        long[] recent = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+        Arrays.sort(recent);
+        return new Metrics(count, failures, recent, max);
+    }
+
+    /**
+     * Waits for the submitted requests to finish and stops the executor.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Request latencies at one point in time, in nanoseconds.
+     */
+    public static final class Metrics {
+
+        private final long count;
+        private final long failures;
+        private final long[] sorted;
+        private final long max;
+
+        private Metrics(long count, long failures, long[] sorted, long max) {
+            this.count = count;
+            this.failures = failures;
+            this.sorted = sorted;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return sorted.length == 0 ? 0 : (double) Arrays.stream(sorted).sum() / sorted.length;
+        }
+
+        /**
+         * Returns the latency at {@code percentile} (between 0 and 100) of the
+         * recent requests, by the nearest-rank method.
+         */
+        public long getPercentile(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "count=" + count +
+                    ", failures=" + failures +
+                    ", mean=" + getMean() +
+                    ", p50=" + getPercentile(50) +
+                    ", p99=" + getPercentile(99) +
+                    ", max=" + max +
+                    '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,916 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes a resolved {@link Ast.Source} by first translating it into a tree of
+ * executable nodes that rewrite themselves based on the values they see.
+ *
+ * A binary expression starts out uninitialized; its first execution replaces
+ * it with a node specialized for the operand types it was given, such as an
+ * integer addition on {@code long}s or a string concatenation. When a
+ * specialized node later receives operands it cannot handle (or an integer
+ * operation overflows) it deoptimizes, replacing itself with the generic node
+ * that delegates to {@link Operators}. Calls cache their resolved target the
+ * same way, so function lookup happens once per call site.
+ *
+ * Statements complete with {@code null}, or with the returned value when a
+ * {@code RETURN} executes, so returns need no exceptions. Unlike the
+ * {@link Interpreter}, {@code &&} and {@code ||} only evaluate their right
+ * operand when needed, matching the code emitted by the {@link Generator}.
+ */
+public final class SpecializingInterpreter {
+
+    private final Scope scope;
+    private final Map<String, FunctionNode> functions = new HashMap<>();
+    private Environment.Variable[] globals = new Environment.Variable[0];
+    private int specializations = 0;
+    private int deoptimizations = 0;
+
+    public SpecializingInterpreter(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns the number of nodes rewritten from their uninitialized form.
+     */
+    public int getSpecializations() {
+        return specializations;
+    }
+
+    /**
+     * Returns the number of specialized nodes that fell back to the generic form.
+     */
+    public int getDeoptimizations() {
+        return deoptimizations;
+    }
+
+    /**
+     * Defines the globals and functions of {@code source}, which must have been
+     * through the {@link Resolver}, and returns the result of calling
+     * {@code main/0}.
+     */
+    public Environment.PlcObject run(Ast.Source source) {
+        for (Ast.Function function : source.getFunctions()) {
+            if (function.getFrameSize() < 0) {
+                throw new RuntimeException("The function " + function.getName() + " has not been resolved.");
+            }
+            FunctionNode node = new FunctionNode(function.getParameters().size(), function.getFrameSize());
+            functions.put(function.getName() + "/" + node.arity, node);
+            scope.defineFunction(function.getName(), node.arity, args -> node.invoke(args.toArray(new Environment.PlcObject[node.frameSize])));
+        }
+        for (Ast.Function function : source.getFunctions()) {
+            functions.get(function.getName() + "/" + function.getParameters().size()).body = block(function.getStatements());
+        }
+        globals = new Environment.Variable[source.getGlobals().size()];
+        for (Ast.Global global : source.getGlobals()) {
+            Environment.PlcObject value = Environment.NIL;
+            if (global.getValue().isPresent()) {
+                // held by a node, like every other expression, so it can specialize itself
+                value = new ReturnNode(expression(global.getValue().get())).execute(new Environment.PlcObject[0]);
+            }
+            scope.defineVariable(global.getName(), global.getMutable(), value);
+            globals[global.getSlot()] = scope.lookupVariable(global.getName());
+        }
+        FunctionNode main = functions.get("main/0");
+        if (main == null) {
+            return scope.lookupFunction("main", 0).invoke(new ArrayList<>());
+        }
+        return main.invoke(new Environment.PlcObject[main.frameSize]);
+    }
+
+    private StatementNode[] block(List<Ast.Statement> statements) {
+        StatementNode[] block = new StatementNode[statements.size()];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = statement(statements.get(i));
+        }
+        return block;
+    }
+
+    private StatementNode statement(Ast.Statement ast) {
+        if (ast instanceof Ast.Statement.Expression) {
+            return new ExpressionStatementNode(expression(((Ast.Statement.Expression) ast).getExpression()));
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+            return new DeclarationNode(declaration.getSlot(), declaration.getValue().map(this::expression).orElse(new ConstantNode(Environment.NIL)));
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+            if (!(assignment.getReceiver() instanceof Ast.Expression.Access)) {
+                throw new RuntimeException("Not Access Type");
+            }
+            Ast.Expression.Access receiver = (Ast.Expression.Access) assignment.getReceiver();
+            if (receiver.getOffset().isPresent()) {
+                return new IndexAssignmentNode(variable(receiver), expression(receiver.getOffset().get()), expression(assignment.getValue()));
+            }
+            return new AssignmentNode(resolve(receiver).getDepth(), receiver.getSlot(), expression(assignment.getValue()));
+        } else if (ast instanceof Ast.Statement.If) {
+            Ast.Statement.If ifStatement = (Ast.Statement.If) ast;
+            return new IfNode(expression(ifStatement.getCondition()), block(ifStatement.getThenStatements()), block(ifStatement.getElseStatements()));
+        } else if (ast instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch switchStatement = (Ast.Statement.Switch) ast;
+            List<ExpressionNode> values = new ArrayList<>();
+            List<StatementNode[]> cases = new ArrayList<>();
+            StatementNode[] defaultCase = new StatementNode[0];
+            for (Ast.Statement.Case caseStatement : switchStatement.getCases()) {
+                if (caseStatement.getValue().isPresent()) {
+                    values.add(expression(caseStatement.getValue().get()));
+                    cases.add(block(caseStatement.getStatements()));
+                } else {
+                    defaultCase = block(caseStatement.getStatements());
+                }
+            }
+            return new SwitchNode(expression(switchStatement.getCondition()), values.toArray(new ExpressionNode[0]), cases.toArray(new StatementNode[0][]), defaultCase);
+        } else if (ast instanceof Ast.Statement.While) {
+            Ast.Statement.While whileStatement = (Ast.Statement.While) ast;
+            return new WhileNode(expression(whileStatement.getCondition()), block(whileStatement.getStatements()));
+        } else if (ast instanceof Ast.Statement.Return) {
+            return new ReturnNode(expression(((Ast.Statement.Return) ast).getValue()));
+        }
+        throw new RuntimeException("Unexpected statement " + ast.getClass().getSimpleName() + ".");
+    }
+
+    private ExpressionNode expression(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Literal) {
+            Object literal = ((Ast.Expression.Literal) ast).getLiteral();
+            return new ConstantNode(literal == null ? Environment.NIL : Environment.create(literal));
+        } else if (ast instanceof Ast.Expression.Group) {
+            return expression(((Ast.Expression.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            if (binary.getOperator().equals("&&")) {
+                return new AndNode(expression(binary.getLeft()), expression(binary.getRight()));
+            } else if (binary.getOperator().equals("||")) {
+                return new OrNode(expression(binary.getLeft()), expression(binary.getRight()));
+            }
+            return new UninitializedBinaryNode(binary.getOperator(), expression(binary.getLeft()), expression(binary.getRight()));
+        } else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            if (access.getOffset().isPresent()) {
+                return new IndexNode(variable(access), expression(access.getOffset().get()));
+            }
+            return variable(access);
+        } else if (ast instanceof Ast.Expression.Function) {
+            Ast.Expression.Function function = (Ast.Expression.Function) ast;
+            ExpressionNode[] arguments = new ExpressionNode[function.getArguments().size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = expression(function.getArguments().get(i));
+            }
+            return new CallNode(function.getName(), arguments);
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            List<Ast.Expression> values = ((Ast.Expression.PlcList) ast).getValues();
+            ExpressionNode[] elements = new ExpressionNode[values.size()];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = expression(values.get(i));
+            }
+            return new ListNode(elements);
+        }
+        throw new RuntimeException("Unexpected expression " + ast.getClass().getSimpleName() + ".");
+    }
+
+    /**
+     * Returns a node reading the variable named by {@code ast}, ignoring any offset.
+     */
+    private ExpressionNode variable(Ast.Expression.Access ast) {
+        return resolve(ast).getDepth() == 0 ? new LocalNode(ast.getSlot()) : new GlobalNode(ast.getSlot());
+    }
+
+    private static Ast.Expression.Access resolve(Ast.Expression.Access ast) {
+        if (ast.getDepth() < 0) {
+            throw new RuntimeException("The variable " + ast.getName() + " has not been resolved.");
+        }
+        return ast;
+    }
+
+    private static boolean condition(ExpressionNode node, Environment.PlcObject[] frame) {
+        Object value = node.execute(frame).getValue();
+        if (!(value instanceof Boolean)) {
+            throw new RuntimeException("Expected type " + Boolean.class.getName() + ", received " + value.getClass().getName() + ".");
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * Executes a block, returning the value of a {@code RETURN} within it or
+     * {@code null} if it completes normally.
+     */
+    private static Environment.PlcObject execute(StatementNode[] block, Environment.PlcObject[] frame) {
+        for (StatementNode statement : block) {
+            Environment.PlcObject result = statement.execute(frame);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static int index(Environment.PlcObject offset) {
+        if (!(offset.getValue() instanceof BigInteger)) {
+            throw new RuntimeException("Not BigInteger offset");
+        }
+        return ((BigInteger) offset.getValue()).intValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Environment.PlcObject object) {
+        if (!(object.getValue() instanceof List)) {
+            throw new RuntimeException("Expected type " + List.class.getName() + ", received " + object.getValue().getClass().getName() + ".");
+        }
+        return (List<Object>) object.getValue();
+    }
+
+    /**
+     * A node holding child expressions, which may replace themselves.
+     */
+    private abstract static class Node {
+
+        <T extends ExpressionNode> T adopt(T child) {
+            child.parent = this;
+            return child;
+        }
+
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            throw new IllegalStateException("Node " + getClass().getSimpleName() + " has no child " + child.getClass().getSimpleName() + ".");
+        }
+
+    }
+
+    private abstract static class ExpressionNode extends Node {
+
+        Node parent;
+
+        abstract Environment.PlcObject execute(Environment.PlcObject[] frame);
+
+        <T extends ExpressionNode> T replace(T replacement) {
+            replacement.parent = parent;
+            parent.replaceChild(this, replacement);
+            return replacement;
+        }
+
+    }
+
+    private abstract static class StatementNode extends Node {
+
+        abstract Environment.PlcObject execute(Environment.PlcObject[] frame);
+
+    }
+
+    private static final class FunctionNode {
+
+        private final int arity;
+        private final int frameSize;
+        private StatementNode[] body;
+
+        private FunctionNode(int arity, int frameSize) {
+            this.arity = arity;
+            this.frameSize = frameSize;
+        }
+
+        /**
+         * Runs the function in {@code frame}, whose first slots hold the arguments.
+         */
+        private Environment.PlcObject invoke(Environment.PlcObject[] frame) {
+            Environment.PlcObject result = execute(body, frame);
+            return result == null ? Environment.NIL : result;
+        }
+
+    }
+
+    private static final class ConstantNode extends ExpressionNode {
+
+        private final Environment.PlcObject value;
+
+        private ConstantNode(Environment.PlcObject value) {
+            this.value = value;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return value;
+        }
+
+    }
+
+    private static final class LocalNode extends ExpressionNode {
+
+        private final int slot;
+
+        private LocalNode(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return frame[slot];
+        }
+
+    }
+
+    private final class GlobalNode extends ExpressionNode {
+
+        private final int slot;
+
+        private GlobalNode(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return globals[slot].getValue();
+        }
+
+    }
+
+    private static final class IndexNode extends ExpressionNode {
+
+        private ExpressionNode list;
+        private ExpressionNode offset;
+
+        private IndexNode(ExpressionNode list, ExpressionNode offset) {
+            this.list = adopt(list);
+            this.offset = adopt(offset);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            int index = index(offset.execute(frame));
+            return Environment.create(list(list.execute(frame)).get(index));
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            if (child == list) {
+                list = replacement;
+            } else {
+                offset = replacement;
+            }
+        }
+
+    }
+
+    private static final class ListNode extends ExpressionNode {
+
+        private final ExpressionNode[] elements;
+
+        private ListNode(ExpressionNode[] elements) {
+            this.elements = elements;
+            for (ExpressionNode element : elements) {
+                adopt(element);
+            }
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            List<Object> values = new ArrayList<>(elements.length);
+            for (ExpressionNode element : elements) {
+                values.add(element.execute(frame).getValue());
+            }
+            return Environment.create(values);
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            elements[Arrays.asList(elements).indexOf(child)] = replacement;
+        }
+
+    }
+
+    private static final class AndNode extends ExpressionNode {
+
+        private ExpressionNode left;
+        private ExpressionNode right;
+
+        private AndNode(ExpressionNode left, ExpressionNode right) {
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return condition(left, frame) && condition(right, frame) ? Environment.TRUE : Environment.FALSE;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            if (child == left) {
+                left = replacement;
+            } else {
+                right = replacement;
+            }
+        }
+
+    }
+
+    private static final class OrNode extends ExpressionNode {
+
+        private ExpressionNode left;
+        private ExpressionNode right;
+
+        private OrNode(ExpressionNode left, ExpressionNode right) {
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return condition(left, frame) || condition(right, frame) ? Environment.TRUE : Environment.FALSE;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            if (child == left) {
+                left = replacement;
+            } else {
+                right = replacement;
+            }
+        }
+
+    }
+
+    /**
+     * A strict binary operator. Subclasses implement {@link #apply} for the
+     * operand types they are specialized to.
+     */
+    private abstract class BinaryNode extends ExpressionNode {
+
+        final String operator;
+        ExpressionNode left;
+        ExpressionNode right;
+
+        BinaryNode(String operator, ExpressionNode left, ExpressionNode right) {
+            this.operator = operator;
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Environment.PlcObject LHS = left.execute(frame);
+            return apply(LHS, right.execute(frame));
+        }
+
+        abstract Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS);
+
+        /**
+         * Replaces this node with the generic form, which handles any operands.
+         */
+        Environment.PlcObject deoptimize(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            deoptimizations++;
+            return replace(new GenericBinaryNode(operator, left, right)).apply(LHS, RHS);
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            if (child == left) {
+                left = replacement;
+            } else {
+                right = replacement;
+            }
+        }
+
+    }
+
+    private final class UninitializedBinaryNode extends BinaryNode {
+
+        private UninitializedBinaryNode(String operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            specializations++;
+            return replace(specialize(LHS, RHS)).apply(LHS, RHS);
+        }
+
+        private BinaryNode specialize(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            if (LHS.isLong() && RHS.isLong()) {
+                switch (operator) {
+                    case "+":
+                        return new IntegerAddNode(left, right);
+                    case "-":
+                        return new IntegerSubtractNode(left, right);
+                    case "*":
+                        return new IntegerMultiplyNode(left, right);
+                    case "<":
+                    case "<=":
+                    case ">":
+                    case ">=":
+                    case "==":
+                    case "!=":
+                        return new IntegerCompareNode(operator, left, right);
+                }
+            } else if (operator.equals("+") && (LHS.getValue() instanceof String || RHS.getValue() instanceof String)) {
+                return new StringConcatNode(left, right);
+            }
+            return new GenericBinaryNode(operator, left, right);
+        }
+
+    }
+
+    private final class IntegerAddNode extends BinaryNode {
+
+        private IntegerAddNode(ExpressionNode left, ExpressionNode right) {
+            super("+", left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            if (LHS.isLong() && RHS.isLong()) {
+                try {
+                    return Environment.createInteger(Math.addExact(LHS.getLong(), RHS.getLong()));
+                } catch (ArithmeticException overflow) {
+                    // deoptimized below
+                }
+            }
+            return deoptimize(LHS, RHS);
+        }
+
+    }
+
+    private final class IntegerSubtractNode extends BinaryNode {
+
+        private IntegerSubtractNode(ExpressionNode left, ExpressionNode right) {
+            super("-", left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            if (LHS.isLong() && RHS.isLong()) {
+                try {
+                    return Environment.createInteger(Math.subtractExact(LHS.getLong(), RHS.getLong()));
+                } catch (ArithmeticException overflow) {
+                    // deoptimized below
+                }
+            }
+            return deoptimize(LHS, RHS);
+        }
+
+    }
+
+    private final class IntegerMultiplyNode extends BinaryNode {
+
+        private IntegerMultiplyNode(ExpressionNode left, ExpressionNode right) {
+            super("*", left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            if (LHS.isLong() && RHS.isLong()) {
+                try {
+                    return Environment.createInteger(Math.multiplyExact(LHS.getLong(), RHS.getLong()));
+                } catch (ArithmeticException overflow) {
+                    // deoptimized below
+                }
+            }
+            return deoptimize(LHS, RHS);
+        }
+
+    }
+
+    private final class IntegerCompareNode extends BinaryNode {
+
+        private IntegerCompareNode(String operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            if (!LHS.isLong() || !RHS.isLong()) {
+                return deoptimize(LHS, RHS);
+            }
+            int comparison = Long.compare(LHS.getLong(), RHS.getLong());
+            boolean result;
+            switch (operator) {
+                case "<":
+                    result = comparison < 0;
+                    break;
+                case "<=":
+                    result = comparison <= 0;
+                    break;
+                case ">":
+                    result = comparison > 0;
+                    break;
+                case ">=":
+                    result = comparison >= 0;
+                    break;
+                case "==":
+                    result = comparison == 0;
+                    break;
+                default:
+                    result = comparison != 0;
+                    break;
+            }
+            return result ? Environment.TRUE : Environment.FALSE;
+        }
+
+    }
+
+    private final class StringConcatNode extends BinaryNode {
+
+        private StringConcatNode(ExpressionNode left, ExpressionNode right) {
+            super("+", left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            if (LHS.getValue() instanceof String || RHS.getValue() instanceof String) {
+                return Environment.create(LHS.getValue().toString() + RHS.getValue().toString());
+            }
+            return deoptimize(LHS, RHS);
+        }
+
+    }
+
+    private final class GenericBinaryNode extends BinaryNode {
+
+        private GenericBinaryNode(String operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Environment.PlcObject apply(Environment.PlcObject LHS, Environment.PlcObject RHS) {
+            return Operators.apply(operator, LHS, RHS);
+        }
+
+    }
+
+    /**
+     * A call site, which resolves its target on first execution. Calls to
+     * functions of the source run directly in a new frame; any other function
+     * is looked up in the scope and invoked with a list of arguments.
+     */
+    private final class CallNode extends ExpressionNode {
+
+        private final String name;
+        private final ExpressionNode[] arguments;
+        private FunctionNode target;
+        private Environment.Function function;
+
+        private CallNode(String name, ExpressionNode[] arguments) {
+            this.name = name;
+            this.arguments = arguments;
+            for (ExpressionNode argument : arguments) {
+                adopt(argument);
+            }
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            if (target == null && function == null) {
+                target = functions.get(name + "/" + arguments.length);
+                if (target == null) {
+                    function = scope.lookupFunction(name, arguments.length);
+                }
+            }
+            if (target != null) {
+                Environment.PlcObject[] callee = new Environment.PlcObject[target.frameSize];
+                for (int i = 0; i < arguments.length; i++) {
+                    callee[i] = arguments[i].execute(frame);
+                }
+                return target.invoke(callee);
+            }
+            List<Environment.PlcObject> values = new ArrayList<>(arguments.length);
+            for (ExpressionNode argument : arguments) {
+                values.add(argument.execute(frame));
+            }
+            return function.invoke(values);
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            arguments[Arrays.asList(arguments).indexOf(child)] = replacement;
+        }
+
+    }
+
+    private static final class ExpressionStatementNode extends StatementNode {
+
+        private ExpressionNode expression;
+
+        private ExpressionStatementNode(ExpressionNode expression) {
+            this.expression = adopt(expression);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            expression.execute(frame);
+            return null;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            expression = replacement;
+        }
+
+    }
+
+    private static final class DeclarationNode extends StatementNode {
+
+        private final int slot;
+        private ExpressionNode value;
+
+        private DeclarationNode(int slot, ExpressionNode value) {
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            frame[slot] = value.execute(frame);
+            return null;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            value = replacement;
+        }
+
+    }
+
+    private final class AssignmentNode extends StatementNode {
+
+        private final int depth;
+        private final int slot;
+        private ExpressionNode value;
+
+        private AssignmentNode(int depth, int slot, ExpressionNode value) {
+            this.depth = depth;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            if (depth == 0) {
+                frame[slot] = value.execute(frame);
+            } else if (globals[slot].getMutable()) {
+                globals[slot].setValue(value.execute(frame));
+            } else {
+                throw new RuntimeException("Immutable Variable");
+            }
+            return null;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            value = replacement;
+        }
+
+    }
+
+    private static final class IndexAssignmentNode extends StatementNode {
+
+        private ExpressionNode list;
+        private ExpressionNode offset;
+        private ExpressionNode value;
+
+        private IndexAssignmentNode(ExpressionNode list, ExpressionNode offset, ExpressionNode value) {
+            this.list = adopt(list);
+            this.offset = adopt(offset);
+            this.value = adopt(value);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            int index = index(offset.execute(frame));
+            list(list.execute(frame)).set(index, value.execute(frame).getValue());
+            return null;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            if (child == list) {
+                list = replacement;
+            } else if (child == offset) {
+                offset = replacement;
+            } else {
+                value = replacement;
+            }
+        }
+
+    }
+
+    private static final class IfNode extends StatementNode {
+
+        private ExpressionNode condition;
+        private final StatementNode[] thenStatements;
+        private final StatementNode[] elseStatements;
+
+        private IfNode(ExpressionNode condition, StatementNode[] thenStatements, StatementNode[] elseStatements) {
+            this.condition = adopt(condition);
+            this.thenStatements = thenStatements;
+            this.elseStatements = elseStatements;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return SpecializingInterpreter.execute(condition(condition, frame) ? thenStatements : elseStatements, frame);
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            condition = replacement;
+        }
+
+    }
+
+    private static final class SwitchNode extends StatementNode {
+
+        private ExpressionNode condition;
+        private final ExpressionNode[] values;
+        private final StatementNode[][] cases;
+        private final StatementNode[] defaultCase;
+
+        private SwitchNode(ExpressionNode condition, ExpressionNode[] values, StatementNode[][] cases, StatementNode[] defaultCase) {
+            this.condition = adopt(condition);
+            this.values = values;
+            this.cases = cases;
+            this.defaultCase = defaultCase;
+            for (ExpressionNode value : values) {
+                adopt(value);
+            }
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Object value = condition.execute(frame).getValue();
+            for (int i = 0; i < values.length; i++) {
+                if (value.equals(values[i].execute(frame).getValue())) {
+                    return SpecializingInterpreter.execute(cases[i], frame);
+                }
+            }
+            return SpecializingInterpreter.execute(defaultCase, frame);
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            if (child == condition) {
+                condition = replacement;
+            } else {
+                values[Arrays.asList(values).indexOf(child)] = replacement;
+            }
+        }
+
+    }
+
+    private static final class WhileNode extends StatementNode {
+
+        private ExpressionNode condition;
+        private final StatementNode[] statements;
+
+        private WhileNode(ExpressionNode condition, StatementNode[] statements) {
+            this.condition = adopt(condition);
+            this.statements = statements;
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            while (condition(condition, frame)) {
+                Environment.PlcObject result = SpecializingInterpreter.execute(statements, frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            condition = replacement;
+        }
+
+    }
+
+    private static final class ReturnNode extends StatementNode {
+
+        private ExpressionNode value;
+
+        private ReturnNode(ExpressionNode value) {
+            this.value = adopt(value);
+        }
+
+        @Override
+        Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            return value.execute(frame);
+        }
+
+        @Override
+        void replaceChild(ExpressionNode child, ExpressionNode replacement) {
+            value = replacement;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package plc.project;
+
+import java.util.List;
+
+/**
+ * Finds self-recursive calls in tail position, {@code RETURN f(...)} within
+ * {@code f} itself. Nothing is left to do in the caller once such a call
+ * returns, so the {@link Interpreter}, the {@link Generator} and the JIT run
+ * them as jumps back to the start of the function with new arguments, which
+ * keeps the stack from growing.
+ */
+public final class TailCalls {
+
+    private TailCalls() {}
+
+    /**
+     * Returns the call if {@code ast} returns the result of calling
+     * {@code function} itself, or {@code null} otherwise.
+     */
+    public static Ast.Expression.Function getTailCall(Ast.Function function, Ast.Statement.Return ast) {
+        Ast.Expression value = ast.getValue();
+        while (value instanceof Ast.Expression.Group) {
+            value = ((Ast.Expression.Group) value).getExpression();
+        }
+        if (value instanceof Ast.Expression.Function) {
+            Ast.Expression.Function call = (Ast.Expression.Function) value;
+            if (call.getName().equals(function.getName()) && call.getArguments().size() == function.getParameters().size()) {
+                return call;
+            }
+        }
+        return null;
+    }
+
+    public static boolean hasTailCall(Ast.Function function) {
+        return hasTailCall(function, function.getStatements());
+    }
+
+    private static boolean hasTailCall(Ast.Function function, List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.Return) {
+                if (getTailCall(function, (Ast.Statement.Return) statement) != null) {
+                    return true;
+                }
+            } else if (statement instanceof Ast.Statement.If) {
+                Ast.Statement.If ast = (Ast.Statement.If) statement;
+                if (hasTailCall(function, ast.getThenStatements()) || hasTailCall(function, ast.getElseStatements())) {
+                    return true;
+                }
+            } else if (statement instanceof Ast.Statement.While) {
+                if (hasTailCall(function, ((Ast.Statement.While) statement).getStatements())) {
+                    return true;
+                }
+            } else if (statement instanceof Ast.Statement.Switch) {
+                for (Ast.Statement.Case _case : ((Ast.Statement.Switch) statement).getCases()) {
+                    if (hasTailCall(function, _case.getStatements())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the Java code generated for {@code statements} can
+     * complete normally, i.e. does not always end in a {@code return} or an
+     * infinite loop, following the rules javac uses for unreachable code.
+     */
+    public static boolean completesNormally(List<Ast.Statement> statements) {
+        if (statements.isEmpty()) {
+            return true;
+        }
+        Ast.Statement last = statements.get(statements.size() - 1);
+        if (last instanceof Ast.Statement.Return) {
+            return false;
+        } else if (last instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) last;
+            return ast.getElseStatements().isEmpty() || completesNormally(ast.getThenStatements()) || completesNormally(ast.getElseStatements());
+        } else if (last instanceof Ast.Statement.While) {
+            Ast.Expression condition = ((Ast.Statement.While) last).getCondition();
+            // PLC has no break, so only a constant condition keeps the loop from ending
+            return !(condition instanceof Ast.Expression.Literal && Boolean.TRUE.equals(((Ast.Expression.Literal) condition).getLiteral()));
+        } else if (last instanceof Ast.Statement.Switch) {
+            // the Generator only breaks out of cases that complete normally
+            boolean hasDefault = false;
+            for (Ast.Statement.Case _case : ((Ast.Statement.Switch) last).getCases()) {
+                if (completesNormally(_case.getStatements())) {
+                    return true;
+                }
+                hasDefault |= _case.getValue().isEmpty();
+            }
+            return !hasDefault;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,362 @@
+package plc.project.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer for the classes defined by the {@link JitCompiler}: a
+ * single class with static fields and methods. Classes are written as version
+ * 49 (Java 5), for which the JVM infers the types at branch targets itself, so
+ * no StackMapTable has to be computed.
+ */
+final class ClassWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int ASTORE = 0x3A;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IFEQ = 0x99;
+    static final int GOTO = 0xA7;
+    static final int ARETURN = 0xB0;
+    static final int GETSTATIC = 0xB2;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESTATIC = 0xB8;
+    static final int ANEWARRAY = 0xBD;
+    static final int ATHROW = 0xBF;
+    static final int CHECKCAST = 0xC0;
+
+    private static final int VERSION = 49;
+
+    private final String name;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolSize = 1;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    ClassWriter(String name) {
+        this.name = name;
+    }
+
+    void field(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        });
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * Starts a method, which is added to the class by {@link Code#end()}.
+     */
+    Code method(int access, String name, String descriptor) {
+        return new Code(access, name, descriptor);
+    }
+
+    byte[] toByteArray() {
+        int self = type(name);
+        int object = type("java/lang/Object");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        write(() -> {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolSize);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(self);
+            out.writeShort(object);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (byte[] field : fields) {
+                out.write(field);
+            }
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        });
+        return bytes.toByteArray();
+    }
+
+    private int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    private int type(String name) {
+        int utf8 = utf8(name);
+        return constant("C" + name, out -> {
+            out.writeByte(7);
+            out.writeShort(utf8);
+        });
+    }
+
+    private int string(String value) {
+        int utf8 = utf8(value);
+        return constant("S" + value, out -> {
+            out.writeByte(8);
+            out.writeShort(utf8);
+        });
+    }
+
+    private int member(int tag, String owner, String name, String descriptor) {
+        int type = type(owner);
+        int utf8Name = utf8(name);
+        int utf8Descriptor = utf8(descriptor);
+        int nameAndType = constant("N" + name + ":" + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(utf8Name);
+            out.writeShort(utf8Descriptor);
+        });
+        return constant(tag + owner + "." + name + ":" + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(type);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(String key, Entry entry) {
+        Integer index = constants.get(key);
+        if (index == null) {
+            if (poolSize == 0xFFFF) {
+                throw new RuntimeException("Too many constants in " + name + ".");
+            }
+            write(() -> entry.write(new DataOutputStream(pool)));
+            index = poolSize++;
+            constants.put(key, index);
+        }
+        return index;
+    }
+
+    private static void write(Writer writer) {
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory streams never throw
+        }
+    }
+
+    private interface Entry {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Writer {
+        void write() throws IOException;
+    }
+
+    /**
+     * A position in the code of a method, which jumps may refer to before it
+     * is {@link Code#mark marked}.
+     */
+    static final class Label {
+
+        private int position = -1;
+        private int depth = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+    }
+
+    /**
+     * The code of a method. The maximum stack depth is tracked as instructions
+     * are added, so every instruction is added through a method that knows its
+     * effect on the stack.
+     */
+    final class Code {
+
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int depth = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+
+        private Code(int access, String name, String descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.maxLocals = size(descriptor.substring(1, descriptor.indexOf(')')));
+        }
+
+        /**
+         * Adds an instruction without operands that pops {@code pops} values
+         * and pushes {@code pushes}.
+         */
+        void op(int opcode, int pops, int pushes) {
+            code.write(opcode);
+            adjust(pushes - pops);
+        }
+
+        void push(int value) {
+            if (value >= -1 && value <= 5) {
+                code.write(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.write(BIPUSH);
+                code.write(value);
+            } else {
+                code.write(SIPUSH);
+                u2(value);
+            }
+            adjust(1);
+        }
+
+        void string(String value) {
+            code.write(LDC_W);
+            u2(ClassWriter.this.string(value));
+            adjust(1);
+        }
+
+        void load(int local) {
+            local(ALOAD, local);
+            adjust(1);
+        }
+
+        void store(int local) {
+            local(ASTORE, local);
+            adjust(-1);
+        }
+
+        void field(int opcode, String owner, String name, String descriptor) {
+            code.write(opcode);
+            u2(member(9, owner, name, descriptor));
+            adjust(opcode == GETSTATIC ? 1 : -1);
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor) {
+            code.write(opcode);
+            u2(member(10, owner, name, descriptor));
+            int returns = descriptor.endsWith(")V") ? 0 : 1;
+            adjust(returns - size(descriptor.substring(1, descriptor.indexOf(')'))) - (opcode == INVOKESTATIC ? 0 : 1));
+        }
+
+        /**
+         * Adds an instruction taking a class, such as {@code CHECKCAST}.
+         */
+        void type(int opcode, String name) {
+            code.write(opcode);
+            u2(ClassWriter.this.type(name));
+        }
+
+        void jump(int opcode, Label label) {
+            adjust(opcode == GOTO ? 0 : -1);
+            label.depth = depth;
+            label.jumps.add(code.size());
+            labels.add(label);
+            code.write(opcode);
+            u2(0);
+        }
+
+        void mark(Label label) {
+            label.position = code.size();
+            if (label.depth >= 0) {
+                depth = label.depth;
+            }
+        }
+
+        void end() {
+            byte[] bytes = code.toByteArray();
+            if (bytes.length > 0xFFFF) {
+                throw new RuntimeException("The method " + name + " is too large.");
+            }
+            for (Label label : labels) {
+                if (label.position < 0) {
+                    throw new IllegalStateException("Unmarked label in " + name + ".");
+                }
+                for (int jump : label.jumps) {
+                    int offset = label.position - jump;
+                    if (offset != (short) offset) {
+                        throw new RuntimeException("The method " + name + " is too large.");
+                    }
+                    bytes[jump + 1] = (byte) (offset >> 8);
+                    bytes[jump + 2] = (byte) offset;
+                }
+            }
+            ByteArrayOutputStream method = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(method);
+            write(() -> {
+                out.writeShort(access);
+                out.writeShort(utf8(name));
+                out.writeShort(utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(utf8("Code"));
+                out.writeInt(12 + bytes.length);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeShort(0);
+                out.writeShort(0);
+            });
+            methods.add(method.toByteArray());
+        }
+
+        private void adjust(int delta) {
+            depth += delta;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        private void local(int opcode, int local) {
+            if (local > 0xFF) {
+                throw new RuntimeException("Too many locals in " + name + ".");
+            }
+            code.write(opcode);
+            code.write(local);
+            maxLocals = Math.max(maxLocals, local + 1);
+        }
+
+        private void u2(int value) {
+            code.write(value >> 8);
+            code.write(value);
+        }
+
+    }
+
+    /**
+     * Returns the number of slots taken by the parameter types of a
+     * descriptor, which are all references or ints.
+     */
+    private static int size(String parameters) {
+        int size = 0;
+        for (int i = 0; i < parameters.length(); i++) {
+            char c = parameters.charAt(i);
+            if (c == 'J' || c == 'D') {
+                throw new IllegalArgumentException("Unsupported parameter type in " + parameters + ".");
+            }
+            while (c == '[') {
+                c = parameters.charAt(++i);
+            }
+            if (c == 'L') {
+                i = parameters.indexOf(';', i);
+            }
+            size++;
+        }
+        return size;
+    }
+
+}
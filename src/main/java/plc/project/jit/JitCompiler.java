@@ -0,0 +1,625 @@
+package plc.project.jit;
+
+import plc.project.Ast;
+import plc.project.Environment;
+import plc.project.Scope;
+import plc.project.TailCalls;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles a function to JVM bytecode, defined as a hidden class, with the
+ * same behavior as running it in the {@link plc.project.Interpreter}.
+ *
+ * Parameters and locals become JVM locals, self-recursive calls become direct
+ * static calls (or jumps, for {@link TailCalls tail calls}), and globals and other functions are bound once, when the
+ * function is compiled, to the variables and functions of the given scope.
+ * Functions using anything not handled here (lists and {@code SWITCH}) are not
+ * compiled, and keep running in the interpreter. The compiled code calls an
+ * optional poll on entry and on every loop iteration, which may throw to stop
+ * it.
+ */
+public final class JitCompiler implements Ast.Visitor<Void> {
+
+    private static final String OBJECT = "Lplc/project/Environment$PlcObject;";
+    private static final String ENVIRONMENT = "plc/project/Environment";
+    private static final String VARIABLE = "plc/project/Environment$Variable";
+    private static final String FUNCTION = "plc/project/Environment$Function";
+
+    private final Scope scope;
+    private final Runnable poll;
+
+    private Ast.Function function;
+    private String self;
+    private ClassWriter.Code code;
+    private ClassWriter.Label start;
+    private List<Object> constants;
+    private Map<Object, Integer> indices;
+    private Deque<Map<String, Integer>> blocks;
+    private int next;
+
+    /**
+     * Creates a compiler binding globals and functions in {@code scope}.
+     */
+    public JitCompiler(Scope scope) {
+        this(scope, null);
+    }
+
+    /**
+     * Creates a compiler binding globals and functions in {@code scope}, whose
+     * code runs {@code poll} when a function is entered (including by a tail
+     * call) and at the end of every loop iteration.
+     */
+    public JitCompiler(Scope scope, Runnable poll) {
+        this.scope = scope;
+        this.poll = poll;
+    }
+
+    /**
+     * Compiles {@code ast}, returning an implementation of the function for
+     * its {@link Environment.Function} binding, or nothing if the function
+     * cannot be compiled.
+     */
+    public Optional<java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject>> compile(Ast.Function ast) {
+
+        function = ast;
+        self = "plc/project/jit/Jit$" + ast.getName();
+        constants = new ArrayList<>();
+        indices = new IdentityHashMap<>();
+        blocks = new ArrayDeque<>();
+        next = 0;
+
+        try {
+
+            ClassWriter writer = new ClassWriter(self);
+            writer.field(ClassWriter.ACC_STATIC, "constants", "[Ljava/lang/Object;");
+            code = writer.method(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "invoke", descriptor(ast.getParameters().size()));
+            visit(ast);
+            code.end();
+            bridge(writer, ast.getParameters().size());
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+            lookup.findStaticVarHandle(lookup.lookupClass(), "constants", Object[].class).set(constants.toArray());
+            MethodHandle entry = lookup.findStatic(lookup.lookupClass(), "call", MethodType.methodType(Environment.PlcObject.class, List.class));
+
+            return Optional.of(arguments -> {
+
+                try {
+
+                    return (Environment.PlcObject) entry.invokeExact(arguments);
+
+                }
+                catch ( RuntimeException | Error e ) {
+
+                    throw e;
+
+                }
+                catch ( Throwable t ) {
+
+                    throw new RuntimeException(t);
+
+                }
+
+            });
+
+        }
+        catch ( RuntimeException | ReflectiveOperationException e ) {
+
+            // unsupported constructs, or limits of the class file format
+            return Optional.empty();
+
+        }
+        finally {
+
+            code = null;
+            start = null;
+            constants = null;
+            indices = null;
+
+        }
+
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+
+        throw new Unsupported();
+
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+
+        throw new Unsupported();
+
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+
+        blocks.push(new HashMap<>());
+
+        for ( String parameter : ast.getParameters() ) {
+
+            define(parameter);
+
+        }
+
+        start = new ClassWriter.Label();
+        code.mark(start);
+        poll();
+
+        for ( Ast.Statement statement : ast.getStatements() ) {
+
+            visit(statement);
+
+        }
+
+        code.field(ClassWriter.GETSTATIC, ENVIRONMENT, "NIL", OBJECT);
+        code.op(ClassWriter.ARETURN, 1, 0);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+
+        visit(ast.getExpression());
+        code.op(ClassWriter.POP, 1, 0);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+
+        if ( ast.getValue().isPresent() ) {
+
+            visit(ast.getValue().get());
+
+        }
+        else {
+
+            code.field(ClassWriter.GETSTATIC, ENVIRONMENT, "NIL", OBJECT);
+
+        }
+
+        code.store(define(ast.getName()));
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+
+        if ( !(ast.getReceiver() instanceof Ast.Expression.Access) || ((Ast.Expression.Access) ast.getReceiver()).getOffset().isPresent() ) {
+
+            throw new Unsupported();
+
+        }
+
+        String name = ((Ast.Expression.Access) ast.getReceiver()).getName();
+        Integer local = lookup(name);
+
+        if ( local != null ) {
+
+            visit(ast.getValue());
+            code.store(local);
+
+        }
+        else {
+
+            Environment.Variable variable = global(name);
+
+            if ( variable.getMutable() ) {
+
+                constant(variable, VARIABLE);
+                visit(ast.getValue());
+                code.invoke(ClassWriter.INVOKEVIRTUAL, VARIABLE, "setValue", "(" + OBJECT + ")V");
+
+            }
+            else {
+
+                // the interpreter fails before evaluating the value
+                code.invoke(ClassWriter.INVOKESTATIC, JitSupport.NAME, "immutable", "()Ljava/lang/RuntimeException;");
+                code.op(ClassWriter.ATHROW, 1, 0);
+
+            }
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+
+        ClassWriter.Label otherwise = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+
+        condition(ast.getCondition());
+        code.jump(ClassWriter.IFEQ, otherwise);
+        block(ast.getThenStatements());
+        code.jump(ClassWriter.GOTO, end);
+        code.mark(otherwise);
+        block(ast.getElseStatements());
+        code.mark(end);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+
+        throw new Unsupported();
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+
+        throw new Unsupported();
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+
+        ClassWriter.Label start = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+
+        code.mark(start);
+        condition(ast.getCondition());
+        code.jump(ClassWriter.IFEQ, end);
+        block(ast.getStatements());
+        poll();
+        code.jump(ClassWriter.GOTO, start);
+        code.mark(end);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+
+        Ast.Expression.Function call = TailCalls.getTailCall(function, ast);
+
+        if ( call != null ) {
+
+            // evaluates every argument before any parameter is reassigned
+            for ( Ast.Expression argument : call.getArguments() ) {
+
+                visit(argument);
+
+            }
+
+            for ( int a = call.getArguments().size() - 1; a >= 0; a-- ) {
+
+                code.store(a);
+
+            }
+
+            code.jump(ClassWriter.GOTO, start);
+
+        }
+        else {
+
+            visit(ast.getValue());
+            code.op(ClassWriter.ARETURN, 1, 0);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+
+        if ( ast.getLiteral() == null ) {
+
+            code.field(ClassWriter.GETSTATIC, ENVIRONMENT, "NIL", OBJECT);
+
+        }
+        else {
+
+            constant(Environment.create(ast.getLiteral()), "plc/project/Environment$PlcObject");
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+
+        visit(ast.getExpression());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+
+        String operator = ast.getOperator();
+
+        if ( operator.equals("&&") || operator.equals("||") ) {
+
+            // like the interpreter, the right operand is only evaluated when the left one does not decide the result
+            ClassWriter.Label right = new ClassWriter.Label();
+            ClassWriter.Label otherwise = new ClassWriter.Label();
+            ClassWriter.Label end = new ClassWriter.Label();
+            boolean and = operator.equals("&&");
+
+            condition(ast.getLeft());
+            code.jump(ClassWriter.IFEQ, and ? otherwise : right);
+
+            if ( !and ) {
+
+                code.field(ClassWriter.GETSTATIC, ENVIRONMENT, "TRUE", OBJECT);
+                code.jump(ClassWriter.GOTO, end);
+                code.mark(right);
+
+            }
+
+            condition(ast.getRight());
+            code.jump(ClassWriter.IFEQ, otherwise);
+            code.field(ClassWriter.GETSTATIC, ENVIRONMENT, "TRUE", OBJECT);
+            code.jump(ClassWriter.GOTO, end);
+            code.mark(otherwise);
+            code.field(ClassWriter.GETSTATIC, ENVIRONMENT, "FALSE", OBJECT);
+            code.mark(end);
+
+        }
+        else {
+
+            code.string(operator);
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            code.invoke(ClassWriter.INVOKESTATIC, "plc/project/Operators", "apply", "(Ljava/lang/String;" + OBJECT + OBJECT + ")" + OBJECT);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+
+        if ( ast.getOffset().isPresent() ) {
+
+            throw new Unsupported();
+
+        }
+
+        Integer local = lookup(ast.getName());
+
+        if ( local != null ) {
+
+            code.load(local);
+
+        }
+        else {
+
+            constant(global(ast.getName()), VARIABLE);
+            code.invoke(ClassWriter.INVOKEVIRTUAL, VARIABLE, "getValue", "()" + OBJECT);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+
+        int arity = ast.getArguments().size();
+
+        if ( ast.getName().equals(function.getName()) && arity == function.getParameters().size() ) {
+
+            for ( Ast.Expression argument : ast.getArguments() ) {
+
+                visit(argument);
+
+            }
+
+            code.invoke(ClassWriter.INVOKESTATIC, self, "invoke", descriptor(arity));
+
+        }
+        else {
+
+            Environment.Function callee;
+
+            try {
+
+                callee = scope.lookupFunction(ast.getName(), arity);
+
+            }
+            catch ( RuntimeException undefined ) {
+
+                throw new Unsupported();
+
+            }
+
+            constant(callee, FUNCTION);
+            code.push(arity);
+            code.type(ClassWriter.ANEWARRAY, "plc/project/Environment$PlcObject");
+
+            for ( int a = 0; a < arity; a++ ) {
+
+                code.op(ClassWriter.DUP, 1, 2);
+                code.push(a);
+                visit(ast.getArguments().get(a));
+                code.op(ClassWriter.AASTORE, 3, 0);
+
+            }
+
+            code.invoke(ClassWriter.INVOKESTATIC, JitSupport.NAME, "invoke", "(L" + FUNCTION + ";[" + OBJECT + ")" + OBJECT);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+
+        throw new Unsupported();
+
+    }
+
+    /**
+     * Adds {@code call(List)}, which unpacks the arguments of a binding and
+     * calls {@code invoke}.
+     */
+    private void bridge(ClassWriter writer, int arity) {
+
+        ClassWriter.Code call = writer.method(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "call", "(Ljava/util/List;)" + OBJECT);
+
+        for ( int a = 0; a < arity; a++ ) {
+
+            call.load(0);
+            call.push(a);
+            call.invoke(ClassWriter.INVOKESTATIC, JitSupport.NAME, "argument", "(Ljava/util/List;I)" + OBJECT);
+
+        }
+
+        call.invoke(ClassWriter.INVOKESTATIC, self, "invoke", descriptor(arity));
+        call.op(ClassWriter.ARETURN, 1, 0);
+        call.end();
+
+    }
+
+    /**
+     * Evaluates {@code ast} as a Boolean, leaving an int on the stack.
+     */
+    private void condition(Ast.Expression ast) {
+
+        visit(ast);
+        code.invoke(ClassWriter.INVOKESTATIC, JitSupport.NAME, "condition", "(" + OBJECT + ")Z");
+
+    }
+
+    private void poll() {
+
+        if ( poll != null ) {
+
+            constant(poll, "java/lang/Runnable");
+            code.invoke(ClassWriter.INVOKESTATIC, JitSupport.NAME, "poll", "(Ljava/lang/Runnable;)V");
+
+        }
+
+    }
+
+    /**
+     * Pushes the constant {@code value} as an instance of {@code type}.
+     */
+    private void constant(Object value, String type) {
+
+        Integer index = indices.get(value);
+
+        if ( index == null ) {
+
+            index = constants.size();
+            constants.add(value);
+            indices.put(value, index);
+
+        }
+
+        code.field(ClassWriter.GETSTATIC, self, "constants", "[Ljava/lang/Object;");
+        code.push(index);
+        code.op(ClassWriter.AALOAD, 2, 1);
+        code.type(ClassWriter.CHECKCAST, type);
+
+    }
+
+    private Environment.Variable global(String name) {
+
+        try {
+
+            return scope.lookupVariable(name);
+
+        }
+        catch ( RuntimeException undefined ) {
+
+            throw new Unsupported();
+
+        }
+
+    }
+
+    private void block(List<Ast.Statement> statements) {
+
+        blocks.push(new HashMap<>());
+
+        for ( Ast.Statement statement : statements ) {
+
+            visit(statement);
+
+        }
+
+        next -= blocks.pop().size();
+
+    }
+
+    private int define(String name) {
+
+        if ( blocks.peek().containsKey(name) ) {
+
+            throw new Unsupported();
+
+        }
+
+        blocks.peek().put(name, next);
+        return next++;
+
+    }
+
+    private Integer lookup(String name) {
+
+        for ( Map<String, Integer> block : blocks ) {
+
+            if ( block.containsKey(name) ) {
+
+                return block.get(name);
+
+            }
+
+        }
+
+        return null;
+
+    }
+
+    private static String descriptor(int arity) {
+
+        return "(" + OBJECT.repeat(arity) + ")" + OBJECT;
+
+    }
+
+    /**
+     * Thrown when a function uses something the compiler does not handle.
+     */
+    private static final class Unsupported extends RuntimeException {
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
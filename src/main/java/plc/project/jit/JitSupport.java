@@ -0,0 +1,49 @@
+package plc.project.jit;
+
+import plc.project.Environment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runtime helpers called by the code of compiled functions, for anything that
+ * is simpler to write in Java than to emit as bytecode. These have the same
+ * behavior (and error messages) as the {@link plc.project.Interpreter}.
+ */
+final class JitSupport {
+
+    static final String NAME = "plc/project/jit/JitSupport";
+
+    private JitSupport() {}
+
+    static boolean condition(Environment.PlcObject object) {
+        if (!(object.getValue() instanceof Boolean)) {
+            throw new RuntimeException("Expected type " + Boolean.class.getName() + ", received " + object.getValue().getClass().getName() + ".");
+        }
+        return (Boolean) object.getValue();
+    }
+
+    static Environment.PlcObject invoke(Environment.Function function, Environment.PlcObject[] arguments) {
+        switch (arguments.length) {
+            case 0: return function.invoke();
+            case 1: return function.invoke(arguments[0]);
+            case 2: return function.invoke(arguments[0], arguments[1]);
+            case 3: return function.invoke(arguments[0], arguments[1], arguments[2]);
+            case 4: return function.invoke(arguments[0], arguments[1], arguments[2], arguments[3]);
+            default: return function.invoke(Arrays.asList(arguments));
+        }
+    }
+
+    static void poll(Runnable poll) {
+        poll.run();
+    }
+
+    static Environment.PlcObject argument(List<Environment.PlcObject> arguments, int index) {
+        return arguments.get(index);
+    }
+
+    static RuntimeException immutable() {
+        return new RuntimeException("Immutable Variable");
+    }
+
+}
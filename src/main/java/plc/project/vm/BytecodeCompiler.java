@@ -0,0 +1,668 @@
+package plc.project.vm;
+
+import plc.project.Ast;
+import plc.project.Environment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles an AST into {@link Chunk}s for the {@link VirtualMachine}.
+ *
+ * Any node can be compiled: a source calls {@code main/0} and returns its
+ * result, an expression returns its value, and anything else returns
+ * {@code NIL}. Variables declared within a function (including parameters)
+ * live in the locals of its frame, with the slots of a block's locals reused
+ * once the block ends; all other variables are looked up by name in the scope
+ * of the machine, which is where globals and top-level declarations go.
+ */
+public final class BytecodeCompiler implements Ast.Visitor<Void> {
+
+    private Builder builder;
+
+    /**
+     * Compiles {@code ast} into the chunk that executes it.
+     */
+    public Chunk compile(Ast ast) {
+
+        builder = new Builder("<script>", 0, false);
+        visit(ast);
+
+        if ( !(ast instanceof Ast.Source) && !(ast instanceof Ast.Expression) ) {
+
+            builder.emit(Opcode.NIL);
+
+        }
+
+        builder.emit(Opcode.RETURN);
+        return builder.build();
+
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+
+        for ( Ast.Global global : ast.getGlobals() ) {
+
+            visit(global);
+
+        }
+
+        for ( Ast.Function function : ast.getFunctions() ) {
+
+            visit(function);
+
+        }
+
+        builder.emit(Opcode.CALL, builder.constant(new Chunk.Call("main", 0)));
+        builder.emitByte(0);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+
+        value(ast.getValue());
+        builder.emit(ast.getMutable() ? Opcode.DEFINE_VAR : Opcode.DEFINE_VAL, builder.name(ast.getName()));
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+
+        Builder enclosing = builder;
+        builder = new Builder(ast.getName(), ast.getParameters().size(), true);
+
+        try {
+
+            for ( String parameter : ast.getParameters() ) {
+
+                builder.define(parameter);
+
+            }
+
+            for ( Ast.Statement statement : ast.getStatements() ) {
+
+                visit(statement);
+
+            }
+
+            builder.emit(Opcode.NIL);
+            builder.emit(Opcode.RETURN);
+
+        }
+        finally {
+
+            Chunk function = builder.build();
+            builder = enclosing;
+            builder.emit(Opcode.DEFINE_FUNCTION, builder.constant(function));
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+
+        visit(ast.getExpression());
+        builder.emit(Opcode.POP);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+
+        value(ast.getValue());
+
+        if ( builder.isLocal() ) {
+
+            builder.emit(Opcode.STORE_LOCAL, builder.define(ast.getName()));
+
+        }
+        else {
+
+            builder.emit(Opcode.DEFINE_VAR, builder.name(ast.getName()));
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+
+        if ( !(ast.getReceiver() instanceof Ast.Expression.Access) ) {
+
+            throw new RuntimeException("Not Access Type");
+
+        }
+
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+
+        if ( receiver.getOffset().isPresent() ) {
+
+            load(receiver.getName());
+            visit(receiver.getOffset().get());
+            visit(ast.getValue());
+            builder.emit(Opcode.STORE_INDEX);
+
+        }
+        else {
+
+            visit(ast.getValue());
+            int slot = builder.lookup(receiver.getName());
+
+            if ( slot >= 0 ) {
+
+                builder.emit(Opcode.STORE_LOCAL, slot);
+
+            }
+            else {
+
+                builder.emit(Opcode.STORE_NAME, builder.name(receiver.getName()));
+
+            }
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+
+        visit(ast.getCondition());
+        int otherwise = builder.jump(Opcode.JUMP_IF_FALSE);
+        block(ast.getThenStatements());
+
+        if ( ast.getElseStatements().isEmpty() ) {
+
+            builder.patch(otherwise);
+
+        }
+        else {
+
+            int end = builder.jump(Opcode.JUMP);
+            builder.patch(otherwise);
+            block(ast.getElseStatements());
+            builder.patch(end);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+
+        List<Integer> ends = new ArrayList<>();
+        boolean defaulted = false;
+
+        visit(ast.getCondition());
+
+        for ( Ast.Statement.Case _case : ast.getCases() ) {
+
+            if ( _case.getValue().isPresent() ) {
+
+                builder.emit(Opcode.DUP);
+                visit(_case.getValue().get());
+                builder.emit(Opcode.EQUAL);
+                int next = builder.jump(Opcode.JUMP_IF_FALSE);
+                builder.emit(Opcode.POP);
+                visit(_case);
+                ends.add(builder.jump(Opcode.JUMP));
+                builder.patch(next);
+                // the condition is still on the stack when the case does not match
+                builder.adjust(1);
+
+            }
+            else {
+
+                builder.emit(Opcode.POP);
+                visit(_case);
+                defaulted = true;
+                break;
+
+            }
+
+        }
+
+        if ( !defaulted ) {
+
+            builder.emit(Opcode.POP);
+
+        }
+
+        for ( int end : ends ) {
+
+            builder.patch(end);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+
+        block(ast.getStatements());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+
+        int start = builder.position();
+        visit(ast.getCondition());
+        int exit = builder.jump(Opcode.JUMP_IF_FALSE);
+        block(ast.getStatements());
+        builder.loop(start);
+        builder.patch(exit);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+
+        visit(ast.getValue());
+        builder.emit(Opcode.RETURN);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+
+        if ( ast.getLiteral() == null ) {
+
+            builder.emit(Opcode.NIL);
+
+        }
+        else {
+
+            builder.emit(Opcode.CONSTANT, builder.literal(ast.getLiteral()));
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+
+        visit(ast.getExpression());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+
+        String operator = ast.getOperator();
+
+        if ( operator.equals("&&") || operator.equals("||") ) {
+
+            // jumps to the short-circuit result, otherwise falls through to the other
+            byte shortCircuit = operator.equals("&&") ? Opcode.JUMP_IF_FALSE : Opcode.JUMP_IF_TRUE;
+
+            visit(ast.getLeft());
+            int left = builder.jump(shortCircuit);
+            visit(ast.getRight());
+            int right = builder.jump(shortCircuit);
+            builder.emit(Opcode.CONSTANT, builder.literal(operator.equals("||") ? Boolean.FALSE : Boolean.TRUE));
+            int end = builder.jump(Opcode.JUMP);
+            builder.patch(left);
+            builder.patch(right);
+            builder.adjust(-1);
+            builder.emit(Opcode.CONSTANT, builder.literal(operator.equals("||") ? Boolean.TRUE : Boolean.FALSE));
+            builder.patch(end);
+            return null;
+
+        }
+
+        visit(ast.getLeft());
+        visit(ast.getRight());
+
+        switch ( operator ) {
+
+            case "+":
+                builder.emit(Opcode.ADD);
+                break;
+            case "-":
+                builder.emit(Opcode.SUBTRACT);
+                break;
+            case "*":
+                builder.emit(Opcode.MULTIPLY);
+                break;
+            case "/":
+                builder.emit(Opcode.DIVIDE);
+                break;
+            case "^":
+                builder.emit(Opcode.POWER);
+                break;
+            case "<":
+                builder.emit(Opcode.LESS);
+                break;
+            case "<=":
+                builder.emit(Opcode.LESS_EQUAL);
+                break;
+            case ">":
+                builder.emit(Opcode.GREATER);
+                break;
+            case ">=":
+                builder.emit(Opcode.GREATER_EQUAL);
+                break;
+            case "==":
+                builder.emit(Opcode.EQUAL);
+                break;
+            case "!=":
+                builder.emit(Opcode.NOT_EQUAL);
+                break;
+            default:
+                throw new RuntimeException("Unknown operator " + operator + ".");
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+
+        load(ast.getName());
+
+        if ( ast.getOffset().isPresent() ) {
+
+            visit(ast.getOffset().get());
+            builder.emit(Opcode.LOAD_INDEX);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+
+        if ( ast.getArguments().size() > 255 ) {
+
+            throw new RuntimeException("Too many arguments to " + ast.getName() + ".");
+
+        }
+
+        for ( Ast.Expression argument : ast.getArguments() ) {
+
+            visit(argument);
+
+        }
+
+        builder.emit(Opcode.CALL, builder.constant(new Chunk.Call(ast.getName(), ast.getArguments().size())));
+        builder.emitByte(ast.getArguments().size());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+
+        for ( Ast.Expression value : ast.getValues() ) {
+
+            visit(value);
+
+        }
+
+        builder.emit(Opcode.LIST, ast.getValues().size());
+        return null;
+
+    }
+
+    private void value(Optional<Ast.Expression> value) {
+
+        if ( value.isPresent() ) {
+
+            visit(value.get());
+
+        }
+        else {
+
+            builder.emit(Opcode.NIL);
+
+        }
+
+    }
+
+    private void load(String name) {
+
+        int slot = builder.lookup(name);
+
+        if ( slot >= 0 ) {
+
+            builder.emit(Opcode.LOAD_LOCAL, slot);
+
+        }
+        else {
+
+            builder.emit(Opcode.LOAD_NAME, builder.name(name));
+
+        }
+
+    }
+
+    private void block(List<Ast.Statement> statements) {
+
+        builder.enter();
+
+        try {
+
+            for ( Ast.Statement statement : statements ) {
+
+                visit(statement);
+
+            }
+
+        }
+        finally {
+
+            builder.exit();
+
+        }
+
+    }
+
+    /**
+     * The code, constants and locals of the chunk being compiled, tracking the
+     * stack depth of the code emitted so far to size the frame.
+     */
+    private static final class Builder {
+
+        private final String name;
+        private final int arity;
+        private final boolean function;
+        private byte[] code = new byte[64];
+        private int length = 0;
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> literals = new HashMap<>();
+        private final Map<String, Integer> names = new HashMap<>();
+        private final Map<String, Integer> calls = new HashMap<>();
+        private final Deque<Map<String, Integer>> blocks = new ArrayDeque<>();
+        private int next = 0;
+        private int locals = 0;
+        private int depth = 0;
+        private int maxStack = 0;
+
+        private Builder(String name, int arity, boolean function) {
+            this.name = name;
+            this.arity = arity;
+            this.function = function;
+            if (function) {
+                blocks.push(new HashMap<>());
+            }
+        }
+
+        private Chunk build() {
+            return new Chunk(name, arity, locals, maxStack, Arrays.copyOf(code, length), constants);
+        }
+
+        private int position() {
+            return length;
+        }
+
+        private void emit(byte opcode) {
+            emitByte(opcode);
+            adjust(effect(opcode, 0));
+        }
+
+        private void emit(byte opcode, int operand) {
+            emitByte(opcode);
+            emitByte(operand >> 8);
+            emitByte(operand);
+            adjust(effect(opcode, operand));
+        }
+
+        private void emitByte(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        /**
+         * Emits a forward jump, returning the position to {@link #patch} once
+         * the target is known.
+         */
+        private int jump(byte opcode) {
+            emit(opcode, 0);
+            return length - 2;
+        }
+
+        private void patch(int position) {
+            int offset = length - (position + 2);
+            if (offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Jump too large in " + name + ".");
+            }
+            code[position] = (byte) (offset >> 8);
+            code[position + 1] = (byte) offset;
+        }
+
+        private void loop(int start) {
+            int offset = start - (length + 3);
+            if (offset < Short.MIN_VALUE) {
+                throw new RuntimeException("Loop too large in " + name + ".");
+            }
+            emit(Opcode.JUMP, offset & 0xFFFF);
+        }
+
+        /**
+         * Records a change in stack depth, including those at jump targets that
+         * are not implied by the instruction just emitted.
+         */
+        private void adjust(int effect) {
+            depth += effect;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        private static int effect(byte opcode, int operand) {
+            switch (opcode) {
+                case Opcode.CONSTANT:
+                case Opcode.NIL:
+                case Opcode.DUP:
+                case Opcode.LOAD_LOCAL:
+                case Opcode.LOAD_NAME:
+                    return 1;
+                case Opcode.DEFINE_FUNCTION:
+                case Opcode.JUMP:
+                    return 0;
+                case Opcode.STORE_INDEX:
+                    return -3;
+                case Opcode.LIST:
+                    return 1 - operand;
+                case Opcode.CALL:
+                    // the argument count follows and is accounted for by the caller
+                    return 1;
+                default:
+                    return -1;
+            }
+        }
+
+        private int constant(Object constant) {
+            if (constant instanceof Chunk.Call) {
+                Chunk.Call call = (Chunk.Call) constant;
+                adjust(-call.arity);
+                return calls.computeIfAbsent(call.key, key -> add(call));
+            }
+            return add(constant);
+        }
+
+        private int literal(Object literal) {
+            return literals.computeIfAbsent(literal, key -> add(Environment.create(literal)));
+        }
+
+        private int name(String name) {
+            return names.computeIfAbsent(name, key -> add(name));
+        }
+
+        private int add(Object constant) {
+            if (constants.size() > 0xFFFF) {
+                throw new RuntimeException("Too many constants in " + name + ".");
+            }
+            constants.add(constant);
+            return constants.size() - 1;
+        }
+
+        /**
+         * Returns true if declarations belong in the frame rather than the scope.
+         */
+        private boolean isLocal() {
+            return !blocks.isEmpty();
+        }
+
+        private int define(String name) {
+            if (blocks.peek().containsKey(name)) {
+                throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+            }
+            blocks.peek().put(name, next);
+            locals = Math.max(locals, next + 1);
+            return next++;
+        }
+
+        private int lookup(String name) {
+            for (Map<String, Integer> block : blocks) {
+                if (block.containsKey(name)) {
+                    return block.get(name);
+                }
+            }
+            return -1;
+        }
+
+        private void enter() {
+            blocks.push(new HashMap<>());
+        }
+
+        private void exit() {
+            Map<String, Integer> block = blocks.pop();
+            next -= block.size();
+        }
+
+    }
+
+}
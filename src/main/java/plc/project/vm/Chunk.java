@@ -0,0 +1,145 @@
+package plc.project.vm;
+
+import plc.project.Environment;
+
+import java.util.List;
+
+/**
+ * A unit of compiled code: either a function or the top-level code compiled
+ * from some other AST node. The first {@link #getArity()} locals hold the
+ * arguments; the stack of a frame never grows past {@link #getMaxStack()}
+ * values above its locals.
+ */
+public final class Chunk {
+
+    private final String name;
+    private final int arity;
+    private final int locals;
+    private final int maxStack;
+    private final byte[] code;
+    private final Object[] constants;
+
+    public Chunk(String name, int arity, int locals, int maxStack, byte[] code, List<Object> constants) {
+        this.name = name;
+        this.arity = arity;
+        this.locals = locals;
+        this.maxStack = maxStack;
+        this.code = code;
+        this.constants = constants.toArray();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    public int getLocals() {
+        return locals;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    byte[] getCode() {
+        return code;
+    }
+
+    Object[] getConstants() {
+        return constants;
+    }
+
+    /**
+     * Returns a listing of the code of this chunk, followed by that of the
+     * functions it defines, one instruction per line.
+     */
+    public String disassemble() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append('/').append(arity).append(" (locals=").append(locals).append(", stack=").append(maxStack).append(")\n");
+        int ip = 0;
+        while (ip < code.length) {
+            byte opcode = code[ip];
+            builder.append(String.format("%5d  %s", ip, Opcode.getName(opcode)));
+            int operand = Opcode.getOperandSize(opcode) >= 2 ? ((code[ip + 1] & 0xFF) << 8) | (code[ip + 2] & 0xFF) : 0;
+            switch (opcode) {
+                case Opcode.CONSTANT:
+                case Opcode.LOAD_NAME:
+                case Opcode.STORE_NAME:
+                case Opcode.DEFINE_VAR:
+                case Opcode.DEFINE_VAL:
+                case Opcode.DEFINE_FUNCTION:
+                    builder.append(' ').append(operand).append("  ; ").append(describe(constants[operand]));
+                    break;
+                case Opcode.LOAD_LOCAL:
+                case Opcode.STORE_LOCAL:
+                case Opcode.LIST:
+                    builder.append(' ').append(operand);
+                    break;
+                case Opcode.JUMP:
+                case Opcode.JUMP_IF_FALSE:
+                case Opcode.JUMP_IF_TRUE:
+                    builder.append(' ').append(ip + 3 + (short) operand);
+                    break;
+                case Opcode.CALL:
+                    builder.append(' ').append(operand).append(' ').append(code[ip + 3] & 0xFF).append("  ; ").append(describe(constants[operand]));
+                    break;
+            }
+            builder.append('\n');
+            ip += 1 + Opcode.getOperandSize(opcode);
+        }
+        for (Object constant : constants) {
+            if (constant instanceof Chunk) {
+                builder.append('\n').append(((Chunk) constant).disassemble());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String describe(Object constant) {
+        if (constant instanceof Chunk) {
+            return ((Chunk) constant).name + "/" + ((Chunk) constant).arity;
+        } else if (constant instanceof Environment.PlcObject) {
+            Object value = ((Environment.PlcObject) constant).getValue();
+            return value instanceof String ? "\"" + value + "\"" : String.valueOf(value);
+        }
+        return String.valueOf(constant);
+    }
+
+    /**
+     * The target of a {@link Opcode#CALL}, kept in the constant pool.
+     */
+    static final class Call {
+
+        final String name;
+        final int arity;
+        final String key;
+
+        Call(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+            this.key = name + "/" + arity;
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return "Chunk{" +
+                "name='" + name + '\'' +
+                ", arity=" + arity +
+                ", locals=" + locals +
+                ", maxStack=" + maxStack +
+                ", code=" + code.length + " bytes" +
+                ", constants=" + constants.length +
+                '}';
+    }
+
+}
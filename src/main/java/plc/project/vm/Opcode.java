@@ -0,0 +1,131 @@
+package plc.project.vm;
+
+/**
+ * The instructions of the {@link VirtualMachine}. Each is one byte, followed by
+ * the operands listed here; {@code u1}/{@code u2} are unsigned big-endian and
+ * {@code s2} jump offsets are signed, relative to the next instruction.
+ */
+public final class Opcode {
+
+    private Opcode() {}
+
+    /** {@code CONSTANT u2}: pushes a value from the constant pool. */
+    public static final byte CONSTANT = 0;
+    /** Pushes {@code NIL}. */
+    public static final byte NIL = 1;
+    /** Discards the top of the stack. */
+    public static final byte POP = 2;
+    /** Pushes a copy of the top of the stack. */
+    public static final byte DUP = 3;
+    /** {@code LOAD_LOCAL u2}: pushes a local of the current frame. */
+    public static final byte LOAD_LOCAL = 4;
+    /** {@code STORE_LOCAL u2}: pops into a local of the current frame. */
+    public static final byte STORE_LOCAL = 5;
+    /** {@code LOAD_NAME u2}: pushes the variable named in the constant pool. */
+    public static final byte LOAD_NAME = 6;
+    /** {@code STORE_NAME u2}: pops into the named variable, which must be mutable. */
+    public static final byte STORE_NAME = 7;
+    /** {@code DEFINE_VAR u2}: pops into a new mutable variable in the scope. */
+    public static final byte DEFINE_VAR = 8;
+    /** {@code DEFINE_VAL u2}: pops into a new immutable variable in the scope. */
+    public static final byte DEFINE_VAL = 9;
+    /** {@code DEFINE_FUNCTION u2}: defines the function whose chunk is in the constant pool. */
+    public static final byte DEFINE_FUNCTION = 10;
+    /** Pops an offset and a list, pushing the element. */
+    public static final byte LOAD_INDEX = 11;
+    /** Pops a value, an offset and a list, storing the value in the list. */
+    public static final byte STORE_INDEX = 12;
+    /** {@code LIST u2}: pops that many values, pushing a list of them. */
+    public static final byte LIST = 13;
+    public static final byte ADD = 14;
+    public static final byte SUBTRACT = 15;
+    public static final byte MULTIPLY = 16;
+    public static final byte DIVIDE = 17;
+    public static final byte POWER = 18;
+    public static final byte LESS = 19;
+    public static final byte LESS_EQUAL = 20;
+    public static final byte GREATER = 21;
+    public static final byte GREATER_EQUAL = 22;
+    public static final byte EQUAL = 23;
+    public static final byte NOT_EQUAL = 24;
+    /** {@code JUMP s2} */
+    public static final byte JUMP = 25;
+    /** {@code JUMP_IF_FALSE s2}: pops a Boolean, jumping if it is false. */
+    public static final byte JUMP_IF_FALSE = 26;
+    /** {@code JUMP_IF_TRUE s2}: pops a Boolean, jumping if it is true. */
+    public static final byte JUMP_IF_TRUE = 27;
+    /** {@code CALL u2 u1}: calls the function in the constant pool with that many arguments. */
+    public static final byte CALL = 28;
+    /** Pops the result and returns from the current frame. */
+    public static final byte RETURN = 29;
+
+    private static final String[] NAMES = {
+            "CONSTANT", "NIL", "POP", "DUP", "LOAD_LOCAL", "STORE_LOCAL", "LOAD_NAME", "STORE_NAME",
+            "DEFINE_VAR", "DEFINE_VAL", "DEFINE_FUNCTION", "LOAD_INDEX", "STORE_INDEX", "LIST",
+            "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "POWER", "LESS", "LESS_EQUAL", "GREATER",
+            "GREATER_EQUAL", "EQUAL", "NOT_EQUAL", "JUMP", "JUMP_IF_FALSE", "JUMP_IF_TRUE", "CALL", "RETURN"
+    };
+
+    public static String getName(byte opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * Returns the PLC operator of a binary operator instruction, as accepted by
+     * {@link plc.project.Operators#apply}.
+     */
+    public static String getSymbol(byte opcode) {
+        switch (opcode) {
+            case ADD:
+                return "+";
+            case SUBTRACT:
+                return "-";
+            case MULTIPLY:
+                return "*";
+            case DIVIDE:
+                return "/";
+            case POWER:
+                return "^";
+            case LESS:
+                return "<";
+            case LESS_EQUAL:
+                return "<=";
+            case GREATER:
+                return ">";
+            case GREATER_EQUAL:
+                return ">=";
+            case EQUAL:
+                return "==";
+            case NOT_EQUAL:
+                return "!=";
+            default:
+                throw new IllegalArgumentException("Not a binary operator: " + getName(opcode) + ".");
+        }
+    }
+
+    /**
+     * Returns the number of operand bytes following {@code opcode}.
+     */
+    public static int getOperandSize(byte opcode) {
+        switch (opcode) {
+            case CONSTANT:
+            case LOAD_LOCAL:
+            case STORE_LOCAL:
+            case LOAD_NAME:
+            case STORE_NAME:
+            case DEFINE_VAR:
+            case DEFINE_VAL:
+            case DEFINE_FUNCTION:
+            case LIST:
+            case JUMP:
+            case JUMP_IF_FALSE:
+            case JUMP_IF_TRUE:
+                return 2;
+            case CALL:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+}
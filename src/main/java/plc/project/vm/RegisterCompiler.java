@@ -0,0 +1,635 @@
+package plc.project.vm;
+
+import plc.project.Ast;
+import plc.project.Environment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a source into {@link RegisterFunction}s for the
+ * {@link RegisterMachine}, in which every strict binary expression is a single
+ * three-address instruction.
+ *
+ * Locals of a function (including parameters) are registers, with the
+ * registers of a block's locals reused once the block ends; temporaries are
+ * allocated above the locals and released after each statement. Literals and
+ * locals are used directly as operands, so {@code sum = sum + i} compiles to
+ * one {@code ADD}. Globals are accessed by name in the scope of the machine.
+ */
+public final class RegisterCompiler implements Ast.Visitor<Void> {
+
+    private Builder builder;
+    private int target;
+
+    /**
+     * Compiles {@code ast} into a function that defines its globals and
+     * functions and returns the result of calling {@code main/0}.
+     */
+    public RegisterFunction compile(Ast.Source ast) {
+
+        builder = new Builder("<script>", 0);
+        visit(ast);
+        return builder.build();
+
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+
+        for ( Ast.Global global : ast.getGlobals() ) {
+
+            visit(global);
+
+        }
+
+        for ( Ast.Function function : ast.getFunctions() ) {
+
+            visit(function);
+
+        }
+
+        int result = builder.temp();
+        builder.emit(RegisterOpcode.CALL, result, builder.call("main", 0), 0);
+        builder.emit(RegisterOpcode.RET, result, 0, 0);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+
+        int value = rk(ast.getValue().orElse(null));
+        builder.emit(ast.getMutable() ? RegisterOpcode.DEFVAR : RegisterOpcode.DEFVAL, builder.name(ast.getName()), value, 0);
+        builder.release();
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+
+        Builder enclosing = builder;
+        builder = new Builder(ast.getName(), ast.getParameters().size());
+
+        for ( String parameter : ast.getParameters() ) {
+
+            builder.define(parameter);
+
+        }
+
+        for ( Ast.Statement statement : ast.getStatements() ) {
+
+            visit(statement);
+
+        }
+
+        builder.emit(RegisterOpcode.RET, -1 - builder.literal(null), 0, 0);
+        RegisterFunction function = builder.build();
+        builder = enclosing;
+        builder.emit(RegisterOpcode.DEFFUNC, builder.constant(function), 0, 0);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+
+        into(ast.getExpression(), builder.temp());
+        builder.release();
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+
+        // the value goes straight into the register the local is about to take
+        int register = builder.temp();
+
+        if ( ast.getValue().isPresent() ) {
+
+            into(ast.getValue().get(), register);
+
+        }
+        else {
+
+            builder.emit(RegisterOpcode.LOADNIL, register, 0, 0);
+
+        }
+
+        builder.release();
+        builder.define(ast.getName());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+
+        if ( !(ast.getReceiver() instanceof Ast.Expression.Access) ) {
+
+            throw new RuntimeException("Not Access Type");
+
+        }
+
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        int register = builder.lookup(receiver.getName());
+
+        if ( receiver.getOffset().isPresent() ) {
+
+            int list = variable(receiver.getName());
+            int offset = rk(receiver.getOffset().get());
+            builder.emit(RegisterOpcode.SETINDEX, list, offset, rk(ast.getValue()));
+
+        }
+        else if ( register >= 0 ) {
+
+            into(ast.getValue(), register);
+
+        }
+        else {
+
+            int value = rk(ast.getValue());
+            builder.emit(RegisterOpcode.SETGLOBAL, builder.name(receiver.getName()), value, 0);
+
+        }
+
+        builder.release();
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+
+        int otherwise = builder.emit(RegisterOpcode.JMPF, rk(ast.getCondition()), 0, 0);
+        builder.release();
+        block(ast.getThenStatements());
+
+        if ( ast.getElseStatements().isEmpty() ) {
+
+            builder.patch(otherwise, 2);
+
+        }
+        else {
+
+            int end = builder.emit(RegisterOpcode.JMP, 0, 0, 0);
+            builder.patch(otherwise, 2);
+            block(ast.getElseStatements());
+            builder.patch(end, 1);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+
+        List<Integer> ends = new ArrayList<>();
+        int condition = rk(ast.getCondition());
+        int top = builder.top;
+
+        for ( Ast.Statement.Case _case : ast.getCases() ) {
+
+            if ( _case.getValue().isPresent() ) {
+
+                int matches = builder.temp();
+                builder.emit(RegisterOpcode.EQ, matches, condition, rk(_case.getValue().get()));
+                int next = builder.emit(RegisterOpcode.JMPF, matches, 0, 0);
+                visit(_case);
+                ends.add(builder.emit(RegisterOpcode.JMP, 0, 0, 0));
+                builder.patch(next, 2);
+                // the condition must survive until the next comparison
+                builder.top = top;
+
+            }
+            else {
+
+                visit(_case);
+                break;
+
+            }
+
+        }
+
+        for ( int end : ends ) {
+
+            builder.patch(end, 1);
+
+        }
+
+        builder.release();
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+
+        block(ast.getStatements());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+
+        int start = builder.position();
+        int exit = builder.emit(RegisterOpcode.JMPF, rk(ast.getCondition()), 0, 0);
+        builder.release();
+        block(ast.getStatements());
+        builder.emit(RegisterOpcode.JMP, start, 0, 0);
+        builder.patch(exit, 2);
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+
+        builder.emit(RegisterOpcode.RET, rk(ast.getValue()), 0, 0);
+        builder.release();
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+
+        if ( ast.getLiteral() == null ) {
+
+            builder.emit(RegisterOpcode.LOADNIL, target, 0, 0);
+
+        }
+        else {
+
+            builder.emit(RegisterOpcode.LOADK, target, builder.literal(ast.getLiteral()), 0);
+
+        }
+
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+
+        visit(ast.getExpression());
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+
+        String operator = ast.getOperator();
+        int result = target;
+        int top = builder.top;
+
+        if ( operator.equals("&&") || operator.equals("||") ) {
+
+            // jumps to the short-circuit result, otherwise falls through to the other
+            int shortCircuit = operator.equals("&&") ? RegisterOpcode.JMPF : RegisterOpcode.JMPT;
+            Boolean value = operator.equals("||");
+
+            int left = builder.emit(shortCircuit, rk(ast.getLeft()), 0, 0);
+            builder.top = top;
+            int right = builder.emit(shortCircuit, rk(ast.getRight()), 0, 0);
+            builder.emit(RegisterOpcode.LOADK, result, builder.literal(!value), 0);
+            int end = builder.emit(RegisterOpcode.JMP, 0, 0, 0);
+            builder.patch(left, 2);
+            builder.patch(right, 2);
+            builder.emit(RegisterOpcode.LOADK, result, builder.literal(value), 0);
+            builder.patch(end, 1);
+
+        }
+        else {
+
+            // a fresh result register can hold the left operand until the right is computed
+            int left = rk(ast.getLeft(), builder.isTemp(result) ? result : -1);
+            int right = rk(ast.getRight());
+            builder.emit(RegisterOpcode.forSymbol(operator), result, left, right);
+
+        }
+
+        builder.top = top;
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+
+        int result = target;
+        int top = builder.top;
+
+        if ( ast.getOffset().isPresent() ) {
+
+            int list = variable(ast.getName());
+            builder.emit(RegisterOpcode.GETINDEX, result, list, rk(ast.getOffset().get()));
+
+        }
+        else if ( builder.lookup(ast.getName()) >= 0 ) {
+
+            if ( builder.lookup(ast.getName()) != result ) {
+
+                builder.emit(RegisterOpcode.MOVE, result, builder.lookup(ast.getName()), 0);
+
+            }
+
+        }
+        else {
+
+            builder.emit(RegisterOpcode.GETGLOBAL, result, builder.name(ast.getName()), 0);
+
+        }
+
+        builder.top = top;
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+
+        int result = target;
+        int top = builder.top;
+        int base = arguments(ast.getArguments(), builder.isTemp(result) ? result : -1);
+
+        builder.emit(RegisterOpcode.CALL, base, builder.call(ast.getName(), ast.getArguments().size()), ast.getArguments().size());
+
+        if ( base != result ) {
+
+            builder.emit(RegisterOpcode.MOVE, result, base, 0);
+
+        }
+
+        builder.top = top;
+        return null;
+
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+
+        int result = target;
+        int top = builder.top;
+        int base = arguments(ast.getValues(), -1);
+
+        builder.emit(RegisterOpcode.NEWLIST, result, base, ast.getValues().size());
+        builder.top = top;
+        return null;
+
+    }
+
+    /**
+     * Compiles {@code ast} so its value ends up in {@code register}.
+     */
+    private void into(Ast.Expression ast, int register) {
+
+        target = register;
+        visit(ast);
+
+    }
+
+    /**
+     * Returns an operand holding the value of {@code ast} ({@code null} for
+     * {@code NIL}): a constant, a local's register, or a temporary the value is
+     * computed into.
+     */
+    private int rk(Ast.Expression ast) {
+
+        return rk(ast, -1);
+
+    }
+
+    /**
+     * Like {@link #rk(Ast.Expression)}, but computes the value into
+     * {@code scratch} rather than a new temporary if it is not negative.
+     */
+    private int rk(Ast.Expression ast, int scratch) {
+
+        if ( ast == null ) {
+
+            return -1 - builder.literal(null);
+
+        }
+        else if ( ast instanceof Ast.Expression.Literal ) {
+
+            return -1 - builder.literal(((Ast.Expression.Literal) ast).getLiteral());
+
+        }
+        else if ( ast instanceof Ast.Expression.Group ) {
+
+            return rk(((Ast.Expression.Group) ast).getExpression());
+
+        }
+        else if ( ast instanceof Ast.Expression.Access && !((Ast.Expression.Access) ast).getOffset().isPresent() && builder.lookup(((Ast.Expression.Access) ast).getName()) >= 0 ) {
+
+            return builder.lookup(((Ast.Expression.Access) ast).getName());
+
+        }
+
+        int register = scratch >= 0 ? scratch : builder.temp();
+        into(ast, register);
+        return register;
+
+    }
+
+    /**
+     * Returns a register holding the variable named {@code name}.
+     */
+    private int variable(String name) {
+
+        if ( builder.lookup(name) >= 0 ) {
+
+            return builder.lookup(name);
+
+        }
+
+        int register = builder.temp();
+        builder.emit(RegisterOpcode.GETGLOBAL, register, builder.name(name), 0);
+        return register;
+
+    }
+
+    /**
+     * Evaluates {@code values} into consecutive temporaries, returning the first,
+     * which is {@code base} instead if it is not negative.
+     */
+    private int arguments(List<Ast.Expression> values, int base) {
+
+        if ( base < 0 ) {
+
+            base = builder.temp();
+
+        }
+
+        for ( int a = 1; a < values.size(); a++ ) {
+
+            builder.temp();
+
+        }
+
+        for ( int a = 0; a < values.size(); a++ ) {
+
+            into(values.get(a), base + a);
+
+        }
+
+        return base;
+
+    }
+
+    private void block(List<Ast.Statement> statements) {
+
+        builder.enter();
+
+        try {
+
+            for ( Ast.Statement statement : statements ) {
+
+                visit(statement);
+
+            }
+
+        }
+        finally {
+
+            builder.exit();
+
+        }
+
+    }
+
+    /**
+     * The code, constants and registers of the function being compiled.
+     */
+    private static final class Builder {
+
+        private final String name;
+        private final int arity;
+        private int[] code = new int[64];
+        private int length = 0;
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> literals = new HashMap<>();
+        private final Map<String, Integer> names = new HashMap<>();
+        private final Map<String, Integer> calls = new HashMap<>();
+        private final Deque<Map<String, Integer>> blocks = new ArrayDeque<>();
+        private int next = 0;
+        private int top = 0;
+        private int registers = 0;
+
+        private Builder(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+            blocks.push(new HashMap<>());
+        }
+
+        private RegisterFunction build() {
+            return new RegisterFunction(name, arity, registers, Arrays.copyOf(code, length), constants);
+        }
+
+        /**
+         * Returns the index of the next instruction.
+         */
+        private int position() {
+            return length / 4;
+        }
+
+        private int emit(int opcode, int a, int b, int c) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[length++] = opcode;
+            code[length++] = a;
+            code[length++] = b;
+            code[length++] = c;
+            return position() - 1;
+        }
+
+        /**
+         * Sets operand {@code operand} (1 for {@code a}, 2 for {@code b}) of a
+         * jump to the next instruction.
+         */
+        private void patch(int instruction, int operand) {
+            code[instruction * 4 + operand] = position();
+        }
+
+        /**
+         * Returns true if {@code register} is the most recent temporary, so
+         * nothing else can be using it.
+         */
+        private boolean isTemp(int register) {
+            return register >= next && register == top - 1;
+        }
+
+        private int temp() {
+            registers = Math.max(registers, top + 1);
+            return top++;
+        }
+
+        /**
+         * Releases the temporaries of the current statement.
+         */
+        private void release() {
+            top = next;
+        }
+
+        private int constant(Object constant) {
+            constants.add(constant);
+            return constants.size() - 1;
+        }
+
+        private int literal(Object literal) {
+            return literals.computeIfAbsent(literal, key -> constant(literal == null ? Environment.NIL : Environment.create(literal)));
+        }
+
+        private int name(String name) {
+            return names.computeIfAbsent(name, key -> constant(name));
+        }
+
+        private int call(String name, int arity) {
+            Chunk.Call call = new Chunk.Call(name, arity);
+            return calls.computeIfAbsent(call.key, key -> constant(call));
+        }
+
+        private int define(String name) {
+            if (blocks.peek().containsKey(name)) {
+                throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+            }
+            blocks.peek().put(name, next);
+            top = Math.max(top, next + 1);
+            registers = Math.max(registers, next + 1);
+            return next++;
+        }
+
+        private int lookup(String name) {
+            for (Map<String, Integer> block : blocks) {
+                if (block.containsKey(name)) {
+                    return block.get(name);
+                }
+            }
+            return -1;
+        }
+
+        private void enter() {
+            blocks.push(new HashMap<>());
+        }
+
+        private void exit() {
+            next -= blocks.pop().size();
+            top = next;
+        }
+
+    }
+
+}
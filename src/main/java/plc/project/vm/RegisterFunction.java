@@ -0,0 +1,143 @@
+package plc.project.vm;
+
+import plc.project.Environment;
+
+import java.util.List;
+
+/**
+ * A function compiled by the {@link RegisterCompiler}: instructions of the form
+ * {@link RegisterOpcode op a b c}, a constant pool, and the number of registers
+ * a call needs. The first {@link #getArity()} registers hold the arguments.
+ */
+public final class RegisterFunction {
+
+    private final String name;
+    private final int arity;
+    private final int registers;
+    private final int[] code;
+    private final Object[] constants;
+
+    public RegisterFunction(String name, int arity, int registers, int[] code, List<Object> constants) {
+        this.name = name;
+        this.arity = arity;
+        this.registers = registers;
+        this.code = code;
+        this.constants = constants.toArray();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    public int getRegisters() {
+        return registers;
+    }
+
+    int[] getCode() {
+        return code;
+    }
+
+    Object[] getConstants() {
+        return constants;
+    }
+
+    /**
+     * Returns a listing of this function, followed by the functions it defines.
+     * The listing only depends on the compiled code, so the output for two
+     * versions of a program can be compared with a plain text diff.
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("function ").append(name).append('/').append(arity).append(" registers=").append(registers).append('\n');
+        for (int pc = 0; pc < code.length; pc += 4) {
+            int opcode = code[pc];
+            int a = code[pc + 1];
+            int b = code[pc + 2];
+            int c = code[pc + 3];
+            builder.append(String.format("%5d  %-9s ", pc / 4, RegisterOpcode.getName(opcode)));
+            switch (opcode) {
+                case RegisterOpcode.MOVE:
+                    builder.append('r').append(a).append(", r").append(b);
+                    break;
+                case RegisterOpcode.LOADK:
+                    builder.append('r').append(a).append(", ").append(describe(constants[b]));
+                    break;
+                case RegisterOpcode.LOADNIL:
+                    builder.append('r').append(a);
+                    break;
+                case RegisterOpcode.GETGLOBAL:
+                    builder.append('r').append(a).append(", @").append(constants[b]);
+                    break;
+                case RegisterOpcode.SETGLOBAL:
+                case RegisterOpcode.DEFVAR:
+                case RegisterOpcode.DEFVAL:
+                    builder.append('@').append(constants[a]).append(", ").append(operand(b));
+                    break;
+                case RegisterOpcode.DEFFUNC:
+                    RegisterFunction function = (RegisterFunction) constants[a];
+                    builder.append(function.name).append('/').append(function.arity);
+                    break;
+                case RegisterOpcode.GETINDEX:
+                    builder.append('r').append(a).append(", r").append(b).append(", ").append(operand(c));
+                    break;
+                case RegisterOpcode.NEWLIST:
+                    builder.append('r').append(a).append(", r").append(b).append(", ").append(c);
+                    break;
+                case RegisterOpcode.JMP:
+                    builder.append(a);
+                    break;
+                case RegisterOpcode.JMPF:
+                case RegisterOpcode.JMPT:
+                    builder.append(operand(a)).append(", ").append(b);
+                    break;
+                case RegisterOpcode.CALL:
+                    builder.append('r').append(a).append(", ").append(constants[b]).append(", ").append(c);
+                    break;
+                case RegisterOpcode.RET:
+                    builder.append(operand(a));
+                    break;
+                default:
+                    // SETINDEX and the binary operators
+                    builder.append('r').append(a).append(", ").append(operand(b)).append(", ").append(operand(c));
+                    break;
+            }
+            builder.append('\n');
+        }
+        for (Object constant : constants) {
+            if (constant instanceof RegisterFunction) {
+                builder.append('\n').append(((RegisterFunction) constant).dump());
+            }
+        }
+        return builder.toString();
+    }
+
+    private String operand(int rk) {
+        return rk >= 0 ? "r" + rk : describe(constants[-1 - rk]);
+    }
+
+    private static String describe(Object constant) {
+        Object value = ((Environment.PlcObject) constant).getValue();
+        if (value instanceof String) {
+            return "#\"" + value + "\"";
+        } else if (value instanceof Character) {
+            return "#'" + value + "'";
+        }
+        return "#" + value;
+    }
+
+    @Override
+    public String toString() {
+        return "RegisterFunction{" +
+                "name='" + name + '\'' +
+                ", arity=" + arity +
+                ", registers=" + registers +
+                ", instructions=" + code.length / 4 +
+                ", constants=" + constants.length +
+                '}';
+    }
+
+}
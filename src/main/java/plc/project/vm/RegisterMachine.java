@@ -0,0 +1,218 @@
+package plc.project.vm;
+
+import plc.project.Ast;
+import plc.project.Environment;
+import plc.project.Operators;
+import plc.project.Scope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes {@link RegisterFunction}s compiled by the {@link RegisterCompiler}.
+ *
+ * Each call gets its own register array, with the arguments in the first
+ * registers; calls between compiled functions recurse on the Java stack.
+ * Other functions, such as {@code print}, are looked up in the scope.
+ */
+public final class RegisterMachine {
+
+    private static final int MAX_DEPTH = 1 << 12;
+
+    private final Scope scope;
+    private final Map<String, RegisterFunction> functions = new HashMap<>();
+    private int depth = 0;
+
+    public RegisterMachine(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles and executes {@code ast}.
+     */
+    public Environment.PlcObject execute(Ast.Source ast) {
+        return execute(new RegisterCompiler().compile(ast));
+    }
+
+    public Environment.PlcObject execute(RegisterFunction function) {
+        return call(function, new Environment.PlcObject[function.getRegisters()]);
+    }
+
+    private Environment.PlcObject call(RegisterFunction function, Environment.PlcObject[] registers) {
+        if (depth == MAX_DEPTH) {
+            throw new RuntimeException("Stack overflow in " + function.getName() + "/" + function.getArity() + ".");
+        }
+        depth++;
+        try {
+            return run(function, registers);
+        } finally {
+            depth--;
+        }
+    }
+
+    private Environment.PlcObject run(RegisterFunction function, Environment.PlcObject[] r) {
+        int[] code = function.getCode();
+        Object[] k = function.getConstants();
+        int pc = 0;
+
+        while (true) {
+            int opcode = code[pc];
+            int a = code[pc + 1];
+            int b = code[pc + 2];
+            int c = code[pc + 3];
+            pc += 4;
+            switch (opcode) {
+                case RegisterOpcode.MOVE:
+                    r[a] = r[b];
+                    break;
+                case RegisterOpcode.LOADK:
+                    r[a] = (Environment.PlcObject) k[b];
+                    break;
+                case RegisterOpcode.LOADNIL:
+                    r[a] = Environment.NIL;
+                    break;
+                case RegisterOpcode.GETGLOBAL:
+                    r[a] = scope.lookupVariable((String) k[b]).getValue();
+                    break;
+                case RegisterOpcode.SETGLOBAL: {
+                    Environment.Variable variable = scope.lookupVariable((String) k[a]);
+                    if (!variable.getMutable()) {
+                        throw new RuntimeException("Immutable Variable");
+                    }
+                    variable.setValue(b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b]);
+                    break;
+                }
+                case RegisterOpcode.DEFVAR:
+                case RegisterOpcode.DEFVAL:
+                    scope.defineVariable((String) k[a], opcode == RegisterOpcode.DEFVAR, b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b]);
+                    break;
+                case RegisterOpcode.DEFFUNC:
+                    define((RegisterFunction) k[a]);
+                    break;
+                case RegisterOpcode.GETINDEX: {
+                    int index = VirtualMachine.index(c >= 0 ? r[c] : (Environment.PlcObject) k[-1 - c]);
+                    r[a] = Environment.create(VirtualMachine.list(r[b]).get(index));
+                    break;
+                }
+                case RegisterOpcode.SETINDEX: {
+                    int index = VirtualMachine.index(b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b]);
+                    VirtualMachine.list(r[a]).set(index, (c >= 0 ? r[c] : (Environment.PlcObject) k[-1 - c]).getValue());
+                    break;
+                }
+                case RegisterOpcode.NEWLIST: {
+                    List<Object> values = new ArrayList<>(c);
+                    for (int i = b; i < b + c; i++) {
+                        values.add(r[i].getValue());
+                    }
+                    r[a] = Environment.create(values);
+                    break;
+                }
+                case RegisterOpcode.ADD:
+                    r[a] = VirtualMachine.add(b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b], c >= 0 ? r[c] : (Environment.PlcObject) k[-1 - c]);
+                    break;
+                case RegisterOpcode.SUB:
+                    r[a] = VirtualMachine.subtract(b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b], c >= 0 ? r[c] : (Environment.PlcObject) k[-1 - c]);
+                    break;
+                case RegisterOpcode.MUL:
+                case RegisterOpcode.DIV:
+                case RegisterOpcode.POW:
+                    r[a] = Operators.apply(RegisterOpcode.getSymbol(opcode), b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b], c >= 0 ? r[c] : (Environment.PlcObject) k[-1 - c]);
+                    break;
+                case RegisterOpcode.LT:
+                case RegisterOpcode.LE:
+                case RegisterOpcode.GT:
+                case RegisterOpcode.GE:
+                case RegisterOpcode.EQ:
+                case RegisterOpcode.NE:
+                    r[a] = compare(opcode, b >= 0 ? r[b] : (Environment.PlcObject) k[-1 - b], c >= 0 ? r[c] : (Environment.PlcObject) k[-1 - c]);
+                    break;
+                case RegisterOpcode.JMP:
+                    pc = a * 4;
+                    break;
+                case RegisterOpcode.JMPF:
+                    if (!VirtualMachine.condition(a >= 0 ? r[a] : (Environment.PlcObject) k[-1 - a])) {
+                        pc = b * 4;
+                    }
+                    break;
+                case RegisterOpcode.JMPT:
+                    if (VirtualMachine.condition(a >= 0 ? r[a] : (Environment.PlcObject) k[-1 - a])) {
+                        pc = b * 4;
+                    }
+                    break;
+                case RegisterOpcode.CALL: {
+                    Chunk.Call call = (Chunk.Call) k[b];
+                    RegisterFunction target = functions.get(call.key);
+                    if (target == null) {
+                        r[a] = scope.lookupFunction(call.name, call.arity).invoke(new ArrayList<>(Arrays.asList(r).subList(a, a + c)));
+                    } else {
+                        Environment.PlcObject[] registers = new Environment.PlcObject[target.getRegisters()];
+                        System.arraycopy(r, a, registers, 0, c);
+                        r[a] = call(target, registers);
+                    }
+                    break;
+                }
+                case RegisterOpcode.RET:
+                    return a >= 0 ? r[a] : (Environment.PlcObject) k[-1 - a];
+                default:
+                    throw new IllegalStateException("Unknown opcode " + opcode + " in " + function.getName() + ".");
+            }
+        }
+    }
+
+    /**
+     * Makes a compiled function callable from the code of this machine and,
+     * through the scope, from anywhere else.
+     */
+    private void define(RegisterFunction function) {
+        functions.put(function.getName() + "/" + function.getArity(), function);
+        scope.defineFunction(function.getName(), function.getArity(), args -> {
+            Environment.PlcObject[] registers = new Environment.PlcObject[function.getRegisters()];
+            for (int i = 0; i < args.size(); i++) {
+                registers[i] = args.get(i);
+            }
+            return call(function, registers);
+        });
+    }
+
+    private static Environment.PlcObject compare(int opcode, Environment.PlcObject left, Environment.PlcObject right) {
+        if (!left.isLong() || !right.isLong()) {
+            return Operators.apply(RegisterOpcode.getSymbol(opcode), left, right);
+        }
+        long x = left.getLong();
+        long y = right.getLong();
+        boolean result;
+        switch (opcode) {
+            case RegisterOpcode.LT:
+                result = x < y;
+                break;
+            case RegisterOpcode.LE:
+                result = x <= y;
+                break;
+            case RegisterOpcode.GT:
+                result = x > y;
+                break;
+            case RegisterOpcode.GE:
+                result = x >= y;
+                break;
+            case RegisterOpcode.EQ:
+                result = x == y;
+                break;
+            default:
+                result = x != y;
+                break;
+        }
+        return result ? Environment.TRUE : Environment.FALSE;
+    }
+
+}
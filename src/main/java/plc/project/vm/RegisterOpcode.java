@@ -0,0 +1,91 @@
+package plc.project.vm;
+
+/**
+ * The instructions of the {@link RegisterMachine}. Every instruction is four
+ * ints, {@code op a b c}; registers are written {@code r}, and an {@code rk}
+ * operand is a register if it is not negative and otherwise the constant
+ * {@code -1 - rk}. Jump targets are instruction indices.
+ */
+public final class RegisterOpcode {
+
+    private RegisterOpcode() {}
+
+    /** {@code MOVE ra rb} */
+    public static final int MOVE = 0;
+    /** {@code LOADK ra k} */
+    public static final int LOADK = 1;
+    /** {@code LOADNIL ra} */
+    public static final int LOADNIL = 2;
+    /** {@code GETGLOBAL ra k}: reads the variable named by constant {@code k}. */
+    public static final int GETGLOBAL = 3;
+    /** {@code SETGLOBAL k rk}: assigns the mutable variable named by constant {@code k}. */
+    public static final int SETGLOBAL = 4;
+    /** {@code DEFVAR k rk}: defines a mutable variable in the scope. */
+    public static final int DEFVAR = 5;
+    /** {@code DEFVAL k rk}: defines an immutable variable in the scope. */
+    public static final int DEFVAL = 6;
+    /** {@code DEFFUNC k}: defines the function held in constant {@code k}. */
+    public static final int DEFFUNC = 7;
+    /** {@code GETINDEX ra rb rk}: {@code ra = rb[rk]}. */
+    public static final int GETINDEX = 8;
+    /** {@code SETINDEX ra rk rk}: {@code ra[rk] = rk}. */
+    public static final int SETINDEX = 9;
+    /** {@code NEWLIST ra rb n}: {@code ra} is a list of {@code rb} to {@code rb + n - 1}. */
+    public static final int NEWLIST = 10;
+    /** {@code ADD ra rk rk}, and likewise for the operators below. */
+    public static final int ADD = 11;
+    public static final int SUB = 12;
+    public static final int MUL = 13;
+    public static final int DIV = 14;
+    public static final int POW = 15;
+    public static final int LT = 16;
+    public static final int LE = 17;
+    public static final int GT = 18;
+    public static final int GE = 19;
+    public static final int EQ = 20;
+    public static final int NE = 21;
+    /** {@code JMP target} */
+    public static final int JMP = 22;
+    /** {@code JMPF rk target}: jumps if the Boolean is false. */
+    public static final int JMPF = 23;
+    /** {@code JMPT rk target}: jumps if the Boolean is true. */
+    public static final int JMPT = 24;
+    /** {@code CALL ra k n}: calls function {@code k} with the {@code n} arguments from {@code ra}, storing the result in {@code ra}. */
+    public static final int CALL = 25;
+    /** {@code RET rk} */
+    public static final int RET = 26;
+
+    private static final String[] NAMES = {
+            "MOVE", "LOADK", "LOADNIL", "GETGLOBAL", "SETGLOBAL", "DEFVAR", "DEFVAL", "DEFFUNC",
+            "GETINDEX", "SETINDEX", "NEWLIST", "ADD", "SUB", "MUL", "DIV", "POW", "LT", "LE", "GT",
+            "GE", "EQ", "NE", "JMP", "JMPF", "JMPT", "CALL", "RET"
+    };
+
+    private static final String[] SYMBOLS = {
+            "+", "-", "*", "/", "^", "<", "<=", ">", ">=", "==", "!="
+    };
+
+    public static String getName(int opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * Returns the PLC operator of an instruction from {@link #ADD} to {@link #NE}.
+     */
+    public static String getSymbol(int opcode) {
+        return SYMBOLS[opcode - ADD];
+    }
+
+    /**
+     * Returns the instruction for a strict binary PLC operator.
+     */
+    public static int forSymbol(String symbol) {
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            if (SYMBOLS[i].equals(symbol)) {
+                return ADD + i;
+            }
+        }
+        throw new RuntimeException("Unknown operator " + symbol + ".");
+    }
+
+}
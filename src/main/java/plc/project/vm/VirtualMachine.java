@@ -0,0 +1,310 @@
+package plc.project.vm;
+
+import plc.project.Ast;
+import plc.project.Environment;
+import plc.project.Operators;
+import plc.project.Scope;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes {@link Chunk}s compiled by the {@link BytecodeCompiler}.
+ *
+ * Each run uses one value stack for all of its frames: a call leaves its
+ * arguments on the stack as the first locals of the callee, so calls between
+ * compiled functions allocate nothing and never recurse on the Java stack.
+ * Other functions, such as {@code print}, are looked up in the scope.
+ */
+public final class VirtualMachine {
+
+    private static final int MAX_FRAMES = 1 << 16;
+
+    private final Scope scope;
+    private final Map<String, Chunk> functions = new HashMap<>();
+
+    public VirtualMachine(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles and executes {@code ast}.
+     */
+    public Environment.PlcObject execute(Ast ast) {
+        return execute(new BytecodeCompiler().compile(ast));
+    }
+
+    public Environment.PlcObject execute(Chunk chunk) {
+        return run(chunk, new Environment.PlcObject[0]);
+    }
+
+    private Environment.PlcObject run(Chunk entry, Environment.PlcObject[] arguments) {
+        Environment.PlcObject[] stack = new Environment.PlcObject[Math.max(256, entry.getLocals() + entry.getMaxStack())];
+        System.arraycopy(arguments, 0, stack, 0, arguments.length);
+        Chunk[] chunks = new Chunk[16];
+        int[] ips = new int[16];
+        int[] bases = new int[16];
+        int frames = 0;
+
+        Chunk chunk = entry;
+        byte[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        int ip = 0;
+        int base = 0;
+        int sp = entry.getLocals();
+
+        while (true) {
+            byte opcode = code[ip++];
+            switch (opcode) {
+                case Opcode.CONSTANT:
+                    stack[sp++] = (Environment.PlcObject) constants[((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)];
+                    ip += 2;
+                    break;
+                case Opcode.NIL:
+                    stack[sp++] = Environment.NIL;
+                    break;
+                case Opcode.POP:
+                    sp--;
+                    break;
+                case Opcode.DUP:
+                    stack[sp] = stack[sp - 1];
+                    sp++;
+                    break;
+                case Opcode.LOAD_LOCAL:
+                    stack[sp++] = stack[base + (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF))];
+                    ip += 2;
+                    break;
+                case Opcode.STORE_LOCAL:
+                    stack[base + (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF))] = stack[--sp];
+                    ip += 2;
+                    break;
+                case Opcode.LOAD_NAME:
+                    stack[sp++] = scope.lookupVariable((String) constants[((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)]).getValue();
+                    ip += 2;
+                    break;
+                case Opcode.STORE_NAME: {
+                    Environment.Variable variable = scope.lookupVariable((String) constants[((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)]);
+                    if (!variable.getMutable()) {
+                        throw new RuntimeException("Immutable Variable");
+                    }
+                    variable.setValue(stack[--sp]);
+                    ip += 2;
+                    break;
+                }
+                case Opcode.DEFINE_VAR:
+                case Opcode.DEFINE_VAL:
+                    scope.defineVariable((String) constants[((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)], opcode == Opcode.DEFINE_VAR, stack[--sp]);
+                    ip += 2;
+                    break;
+                case Opcode.DEFINE_FUNCTION:
+                    define((Chunk) constants[((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)]);
+                    ip += 2;
+                    break;
+                case Opcode.LOAD_INDEX: {
+                    int index = index(stack[--sp]);
+                    stack[sp - 1] = Environment.create(list(stack[sp - 1]).get(index));
+                    break;
+                }
+                case Opcode.STORE_INDEX: {
+                    Environment.PlcObject value = stack[--sp];
+                    int index = index(stack[--sp]);
+                    list(stack[--sp]).set(index, value.getValue());
+                    break;
+                }
+                case Opcode.LIST: {
+                    int size = ((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF);
+                    List<Object> values = new ArrayList<>(size);
+                    for (int i = sp - size; i < sp; i++) {
+                        values.add(stack[i].getValue());
+                    }
+                    sp -= size;
+                    stack[sp++] = Environment.create(values);
+                    ip += 2;
+                    break;
+                }
+                case Opcode.ADD:
+                    sp--;
+                    stack[sp - 1] = add(stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.SUBTRACT:
+                    sp--;
+                    stack[sp - 1] = subtract(stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.MULTIPLY:
+                    sp--;
+                    stack[sp - 1] = Operators.apply("*", stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.DIVIDE:
+                    sp--;
+                    stack[sp - 1] = Operators.apply("/", stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.POWER:
+                    sp--;
+                    stack[sp - 1] = Operators.apply("^", stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.LESS:
+                case Opcode.LESS_EQUAL:
+                case Opcode.GREATER:
+                case Opcode.GREATER_EQUAL:
+                case Opcode.EQUAL:
+                case Opcode.NOT_EQUAL:
+                    sp--;
+                    stack[sp - 1] = compare(opcode, stack[sp - 1], stack[sp]);
+                    break;
+                case Opcode.JUMP:
+                    ip += 2 + (short) (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF));
+                    break;
+                case Opcode.JUMP_IF_FALSE:
+                    ip += condition(stack[--sp]) ? 2 : 2 + (short) (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF));
+                    break;
+                case Opcode.JUMP_IF_TRUE:
+                    ip += condition(stack[--sp]) ? 2 + (short) (((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)) : 2;
+                    break;
+                case Opcode.CALL: {
+                    Chunk.Call call = (Chunk.Call) constants[((code[ip] & 0xFF) << 8) | (code[ip + 1] & 0xFF)];
+                    ip += 3;
+                    Chunk target = functions.get(call.key);
+                    if (target == null) {
+                        List<Environment.PlcObject> values = new ArrayList<>(Arrays.asList(stack).subList(sp - call.arity, sp));
+                        sp -= call.arity;
+                        stack[sp++] = scope.lookupFunction(call.name, call.arity).invoke(values);
+                        break;
+                    }
+                    if (frames == chunks.length) {
+                        if (frames == MAX_FRAMES) {
+                            throw new RuntimeException("Stack overflow in " + call.key + ".");
+                        }
+                        chunks = Arrays.copyOf(chunks, frames * 2);
+                        ips = Arrays.copyOf(ips, frames * 2);
+                        bases = Arrays.copyOf(bases, frames * 2);
+                    }
+                    chunks[frames] = chunk;
+                    ips[frames] = ip;
+                    bases[frames] = base;
+                    frames++;
+                    base = sp - call.arity;
+                    sp = base + target.getLocals();
+                    if (sp + target.getMaxStack() > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + target.getMaxStack()));
+                    }
+                    chunk = target;
+                    code = chunk.getCode();
+                    constants = chunk.getConstants();
+                    ip = 0;
+                    break;
+                }
+                case Opcode.RETURN: {
+                    Environment.PlcObject result = stack[--sp];
+                    if (frames == 0) {
+                        return result;
+                    }
+                    frames--;
+                    sp = base;
+                    stack[sp++] = result;
+                    chunk = chunks[frames];
+                    code = chunk.getCode();
+                    constants = chunk.getConstants();
+                    ip = ips[frames];
+                    base = bases[frames];
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown opcode " + opcode + " in " + chunk.getName() + ".");
+            }
+        }
+    }
+
+    /**
+     * Makes a compiled function callable from the code of this machine and,
+     * through the scope, from anywhere else.
+     */
+    private void define(Chunk function) {
+        functions.put(function.getName() + "/" + function.getArity(), function);
+        scope.defineFunction(function.getName(), function.getArity(), args -> run(function, args.toArray(new Environment.PlcObject[0])));
+    }
+
+    static Environment.PlcObject add(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isLong() && right.isLong()) {
+            long result = left.getLong() + right.getLong();
+            if (((left.getLong() ^ result) & (right.getLong() ^ result)) >= 0) {
+                return Environment.createInteger(result);
+            }
+        }
+        return Operators.apply("+", left, right);
+    }
+
+    static Environment.PlcObject subtract(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isLong() && right.isLong()) {
+            long result = left.getLong() - right.getLong();
+            if (((left.getLong() ^ right.getLong()) & (left.getLong() ^ result)) >= 0) {
+                return Environment.createInteger(result);
+            }
+        }
+        return Operators.apply("-", left, right);
+    }
+
+    private static Environment.PlcObject compare(byte opcode, Environment.PlcObject left, Environment.PlcObject right) {
+        if (!left.isLong() || !right.isLong()) {
+            return Operators.apply(Opcode.getSymbol(opcode), left, right);
+        }
+        long x = left.getLong();
+        long y = right.getLong();
+        boolean result;
+        switch (opcode) {
+            case Opcode.LESS:
+                result = x < y;
+                break;
+            case Opcode.LESS_EQUAL:
+                result = x <= y;
+                break;
+            case Opcode.GREATER:
+                result = x > y;
+                break;
+            case Opcode.GREATER_EQUAL:
+                result = x >= y;
+                break;
+            case Opcode.EQUAL:
+                result = x == y;
+                break;
+            default:
+                result = x != y;
+                break;
+        }
+        return result ? Environment.TRUE : Environment.FALSE;
+    }
+
+    static boolean condition(Environment.PlcObject object) {
+        if (!(object.getValue() instanceof Boolean)) {
+            throw new RuntimeException("Expected type " + Boolean.class.getName() + ", received " + object.getValue().getClass().getName() + ".");
+        }
+        return (Boolean) object.getValue();
+    }
+
+    static int index(Environment.PlcObject offset) {
+        if (!(offset.getValue() instanceof BigInteger)) {
+            throw new RuntimeException("Not BigInteger offset");
+        }
+        return ((BigInteger) offset.getValue()).intValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> list(Environment.PlcObject object) {
+        if (!(object.getValue() instanceof List)) {
+            throw new RuntimeException("Expected type " + List.class.getName() + ", received " + object.getValue().getClass().getName() + ".");
+        }
+        return (List<Object>) object.getValue();
+    }
+
+}
@@ -0,0 +1,392 @@
+package plc.project;
+
+import plc.project.vm.BytecodeCompiler;
+import plc.project.vm.Chunk;
+import plc.project.vm.RegisterCompiler;
+import plc.project.vm.RegisterFunction;
+import plc.project.vm.RegisterMachine;
+import plc.project.vm.VirtualMachine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmarks for the interpreter, run with {@code gradle benchmark}. Each
+ * benchmark is warmed up, then timed over several runs; the report gives the
+ * median time and the bytes allocated by the running thread per unit of work
+ * (e.g. one iteration of the PLC loop).
+ */
+public final class Benchmarks {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    static final String LOOP = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i: Integer = 0;",
+            "    LET sum: Integer = 0;",
+            "    WHILE i < 100000 DO",
+            "        IF i > 5 DO",
+            "            sum = sum + i;",
+            "        END",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN sum;",
+            "END"
+    );
+
+    static final String FIB = String.join("\n",
+            "FUN fib(n: Integer): Integer DO",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN fib(20);",
+            "END"
+    );
+
+    static final String ARITHMETIC = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i: Integer = 0;",
+            "    LET sum: Integer = 0;",
+            "    WHILE i < 100000 DO",
+            "        sum = sum + i * 3 - i / 2;",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN sum;",
+            "END"
+    );
+
+    static final String PRINT = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i: Integer = 0;",
+            "    WHILE i < 100000 DO",
+            "        print(i);",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN i;",
+            "END"
+    );
+
+    static final String SWITCH = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i: Integer = 0;",
+            "    LET sum: Integer = 0;",
+            "    WHILE i < 100000 DO",
+            "        SWITCH i - i / 16 * 16",
+            java.util.stream.IntStream.range(0, 15)
+                    .mapToObj(c -> "            CASE " + c + ": sum = sum + " + c + ";")
+                    .collect(java.util.stream.Collectors.joining("\n")),
+            "            DEFAULT sum = sum + 15;",
+            "        END",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN sum;",
+            "END"
+    );
+
+    public static void main(String[] args) {
+        frames();
+        arithmetic();
+        values();
+        specializing();
+        vm();
+        register();
+        jit();
+        javac();
+        output();
+        concurrent();
+        runtime();
+        budget();
+        instrumented();
+        switches();
+    }
+
+    /**
+     * Name-based scopes against resolved slot frames.
+     */
+    static void frames() {
+        Ast.Source loop = prepare(LOOP);
+        bench("loop/scopes", 100_000, () -> new Interpreter(new Scope(null)).visit(loop));
+        bench("loop/frames", 100_000, () -> new Interpreter(new Scope(null), true).visit(loop));
+        Ast.Source fib = prepare(FIB);
+        bench("fib/scopes", 21_891, () -> new Interpreter(new Scope(null)).visit(fib));
+        bench("fib/frames", 21_891, () -> new Interpreter(new Scope(null), true).visit(fib));
+    }
+
+    /**
+     * Integer arithmetic on {@code long}s, including values past the range of
+     * a {@code long} that fall back to {@link java.math.BigInteger}.
+     */
+    static void arithmetic() {
+        Ast.Source arithmetic = prepare(ARITHMETIC);
+        bench("arithmetic/frames", 100_000, () -> new Interpreter(new Scope(null), true).visit(arithmetic));
+        bench("operators/long", 1_000_000, () -> {
+            Environment.PlcObject sum = Environment.create(java.math.BigInteger.ZERO);
+            Environment.PlcObject one = Environment.create(java.math.BigInteger.ONE);
+            for (int i = 0; i < 1_000_000; i++) {
+                sum = Operators.apply("+", sum, one);
+            }
+            return sum.getValue();
+        });
+        bench("operators/BigInteger", 1_000_000, () -> {
+            Object sum = java.math.BigInteger.ZERO;
+            for (int i = 0; i < 1_000_000; i++) {
+                sum = Operators.apply("+", sum, java.math.BigInteger.ONE);
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Creation of runtime values, most of which are shared canonical instances.
+     */
+    static void values() {
+        bench("create/boolean", 1_000_000, () -> {
+            Environment.PlcObject value = null;
+            for (int i = 0; i < 1_000_000; i++) {
+                value = Environment.create((i & 1) == 0);
+            }
+            return value;
+        });
+        bench("create/small integer", 1_000_000, () -> {
+            Environment.PlcObject value = null;
+            for (int i = 0; i < 1_000_000; i++) {
+                value = Environment.createInteger(i & 511);
+            }
+            return value;
+        });
+        bench("create/large integer", 1_000_000, () -> {
+            Environment.PlcObject value = null;
+            for (int i = 0; i < 1_000_000; i++) {
+                value = Environment.createInteger(i + 100_000L);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * The self-specializing node interpreter against the tree walker.
+     */
+    static void specializing() {
+        Ast.Source loop = prepare(LOOP);
+        bench("loop/specializing", 100_000, () -> new SpecializingInterpreter(new Scope(null)).run(loop));
+        Ast.Source fib = prepare(FIB);
+        bench("fib/specializing", 21_891, () -> new SpecializingInterpreter(new Scope(null)).run(fib));
+        Ast.Source arithmetic = prepare(ARITHMETIC);
+        bench("arithmetic/specializing", 100_000, () -> new SpecializingInterpreter(new Scope(null)).run(arithmetic));
+    }
+
+    /**
+     * The bytecode virtual machine against the tree walker; compilation is
+     * done once, outside the measured runs.
+     */
+    static void vm() {
+        Chunk loop = new BytecodeCompiler().compile(prepare(LOOP));
+        bench("loop/vm", 100_000, () -> new VirtualMachine(new Scope(null)).execute(loop));
+        Chunk fib = new BytecodeCompiler().compile(prepare(FIB));
+        bench("fib/vm", 21_891, () -> new VirtualMachine(new Scope(null)).execute(fib));
+        Chunk arithmetic = new BytecodeCompiler().compile(prepare(ARITHMETIC));
+        bench("arithmetic/vm", 100_000, () -> new VirtualMachine(new Scope(null)).execute(arithmetic));
+    }
+
+    /**
+     * The register machine, with the same programs as {@link #vm()}.
+     */
+    static void register() {
+        RegisterFunction loop = new RegisterCompiler().compile(prepare(LOOP));
+        bench("loop/register", 100_000, () -> new RegisterMachine(new Scope(null)).execute(loop));
+        RegisterFunction fib = new RegisterCompiler().compile(prepare(FIB));
+        bench("fib/register", 21_891, () -> new RegisterMachine(new Scope(null)).execute(fib));
+        RegisterFunction arithmetic = new RegisterCompiler().compile(prepare(ARITHMETIC));
+        bench("arithmetic/register", 100_000, () -> new RegisterMachine(new Scope(null)).execute(arithmetic));
+    }
+
+    /**
+     * The interpreter compiling functions to JVM bytecode on their first call;
+     * the measured runs call {@code main} again, so they run compiled code only.
+     */
+    static void jit() {
+        bench("loop/jit", 100_000, compiled(LOOP));
+        bench("fib/jit", 21_891, compiled(FIB));
+        bench("arithmetic/jit", 100_000, compiled(ARITHMETIC));
+    }
+
+    private static Supplier<?> compiled(String input) {
+        Interpreter interpreter = new Interpreter(new Scope(null), true, 1);
+        interpreter.visit(prepare(input));
+        Environment.Function main = interpreter.getScope().lookupFunction("main", 0);
+        return () -> main.invoke(new ArrayList<>());
+    }
+
+    /**
+     * Compiling and running generated Java, with a new compiler (and so an
+     * empty cache) for every run against one that has the program cached.
+     */
+    static void javac() {
+        Ast.Source fib = new Parser(new Lexer(FIB).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(fib);
+        String source = InMemoryCompiler.generate(fib);
+        bench("fib/javac", 1, () -> new InMemoryCompiler().run(source));
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        bench("fib/javac cached", 1, () -> compiler.run(source));
+    }
+
+    /**
+     * Printing lines to a discarding stream, through an autoflushing
+     * {@code System.out} against a buffered {@link Output}.
+     */
+    static void output() {
+        Ast.Source print = prepare(PRINT);
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream(), true);
+        bench("print/System.out", 100_000, () -> {
+            PrintStream out = System.out;
+            try {
+                System.setOut(discard);
+                return new Interpreter(new Scope(null), true).visit(print);
+            } finally {
+                System.setOut(out);
+            }
+        });
+        bench("print/buffered", 100_000, () -> {
+            Interpreter interpreter = new Interpreter(new Scope(null), true);
+            interpreter.setOutput(new Output(OutputStream.nullOutputStream()));
+            return interpreter.visit(print);
+        });
+    }
+
+    /**
+     * Calls of {@code fib(20)} on one loaded program, made one after another
+     * on this thread against 1,000 calls at once, each on a virtual thread.
+     */
+    static void concurrent() {
+        Interpreter interpreter = new Interpreter(new Scope(null), true);
+        interpreter.load(prepare(FIB));
+        Environment.Function fib = interpreter.getScope().lookupFunction("fib", 1);
+        Environment.PlcObject n = Environment.create(java.math.BigInteger.valueOf(20));
+        bench("fib/sequential", 1_000 * 21_891L, () -> {
+            for (int i = 0; i < 1_000; i++) {
+                fib.invoke(n);
+            }
+            return null;
+        });
+        bench("fib/virtual threads", 1_000 * 21_891L, () -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1_000; i++) {
+                    executor.submit(() -> fib.invoke(n));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Requests running one program, preparing it for every request against
+     * preparing it once, and 1,000 requests through a {@link ScriptRuntime}.
+     */
+    static void runtime() {
+        String input = FIB.replace("fib(20)", "fib(10)");
+        bench("request/prepare each", 1_000, () -> {
+            for (int i = 0; i < 1_000; i++) {
+                Program.prepare(input).run();
+            }
+            return null;
+        });
+        Program program = Program.prepare(input);
+        bench("request/prepared", 1_000, () -> {
+            for (int i = 0; i < 1_000; i++) {
+                program.run();
+            }
+            return null;
+        });
+        try (ScriptRuntime runtime = new ScriptRuntime()) {
+            bench("request/runtime", 1_000, () -> {
+                CompletableFuture<?>[] requests = new CompletableFuture<?>[1_000];
+                for (int i = 0; i < requests.length; i++) {
+                    requests[i] = runtime.submit(program);
+                }
+                return CompletableFuture.allOf(requests).join();
+            });
+            System.out.println(runtime.getMetrics());
+        }
+    }
+
+    /**
+     * The cost of counting steps against a budget that is never reached;
+     * compare with {@link #frames()}, which has no budget set.
+     */
+    static void budget() {
+        Ast.Source loop = prepare(LOOP);
+        bench("loop/budget", 100_000, () -> {
+            Interpreter interpreter = new Interpreter(new Scope(null), true);
+            interpreter.setBudget(1_000_000_000L);
+            return interpreter.visit(loop);
+        });
+        Ast.Source fib = prepare(FIB);
+        bench("fib/budget", 21_891, () -> {
+            Interpreter interpreter = new Interpreter(new Scope(null), true);
+            interpreter.setBudget(1_000_000_000L);
+            return interpreter.visit(fib);
+        });
+    }
+
+    /**
+     * Counting and timing every node; compare with {@link #frames()}.
+     */
+    static void instrumented() {
+        Ast.Source loop = prepare(LOOP);
+        bench("loop/instrumented", 100_000, () -> new InstrumentedInterpreter(new Scope(null), true).visit(loop));
+        Ast.Source fib = prepare(FIB);
+        bench("fib/instrumented", 21_891, () -> new InstrumentedInterpreter(new Scope(null), true).visit(fib));
+    }
+
+    /**
+     * A switch of sixteen cases executed once per iteration.
+     */
+    static void switches() {
+        Ast.Source ast = prepare(SWITCH);
+        bench("switch/frames", 100_000, () -> new Interpreter(new Scope(null), true).visit(ast));
+    }
+
+    /**
+     * Lexes, parses, analyzes and resolves a program.
+     */
+    static Ast.Source prepare(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return new Resolver().apply(ast);
+    }
+
+    /**
+     * Runs {@code body}, which performs {@code units} units of work, and prints
+     * the median nanoseconds and the allocated bytes per unit.
+     */
+    static void bench(String name, long units, Supplier<?> body) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        for (int i = 0; i < WARMUP; i++) {
+            body.get();
+        }
+        long[] times = new long[RUNS];
+        long allocated = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            body.get();
+            times[i] = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread) - bytes;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-28s %12.1f ns/op %12.1f B/op%n", name, (double) times[RUNS / 2] / units, (double) allocated / RUNS / units);
+    }
+
+}
@@ -0,0 +1,86 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BuiltinsTests {
+
+    static final class Library {
+
+        static final List<Object> LOG = new ArrayList<>();
+
+        @Builtin
+        static BigInteger max(BigInteger left, BigInteger right) {
+            return left.max(right);
+        }
+
+        @Builtin("upper")
+        static String toUpperCase(String value) {
+            return value.toUpperCase();
+        }
+
+        @Builtin
+        static boolean isDigit(char value) {
+            return Character.isDigit(value);
+        }
+
+        @Builtin
+        static void log(Environment.PlcObject value) {
+            LOG.add(value.getValue());
+        }
+
+        @Builtin
+        static BigInteger sum(BigInteger a, BigInteger b, BigInteger c, BigInteger d, BigInteger e) {
+            return a.add(b).add(c).add(d).add(e);
+        }
+
+        static BigInteger hidden() {
+            return BigInteger.ZERO;
+        }
+
+    }
+
+    static final class Invalid {
+
+        @Builtin
+        static int length(String value) {
+            return value.length();
+        }
+
+    }
+
+    @Test
+    void testRegister() {
+        Scope scope = new Scope(null);
+        Builtins.register(scope, Library.class);
+        Library.LOG.clear();
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "FUN main(): Integer DO",
+                "    log(upper(\"plc\"));",
+                "    log(isDigit('7'));",
+                "    RETURN max(3, 11) + sum(1, 2, 3, 4, 5);",
+                "END"
+        )).lex()).parseSource();
+        Assertions.assertEquals(BigInteger.valueOf(26), new Interpreter(scope).visit(ast).getValue());
+        Assertions.assertEquals(List.of("PLC", true), Library.LOG);
+        Assertions.assertThrows(RuntimeException.class, () -> scope.lookupFunction("hidden", 0));
+    }
+
+    @Test
+    void testArgumentType() {
+        Scope scope = new Scope(null);
+        Builtins.register(scope, Library.class);
+        Assertions.assertThrows(ClassCastException.class, () -> scope.lookupFunction("upper", 1).invoke(Environment.create(BigInteger.ONE)));
+    }
+
+    @Test
+    void testUnsupportedType() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () -> Builtins.register(new Scope(null), Invalid.class));
+        Assertions.assertTrue(exception.getMessage().contains("unsupported return type int"), exception.getMessage());
+    }
+
+}
@@ -0,0 +1,71 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class ConstantFolderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testFold(String test, String type, String expression, Object expected, Environment.Type expectedType) {
+        // VAL c: Integer = 4; VAR v: Integer = 1; FUN main(): <type> DO RETURN <expression>; END
+        Ast.Expression result = fold("VAL c: Integer = 4; VAR v: Integer = 1; FUN main(): " + type + " DO RETURN " + expression + "; END");
+        Assertions.assertEquals(Ast.Expression.Literal.class, result.getClass());
+        Assertions.assertEquals(expected, ((Ast.Expression.Literal) result).getLiteral());
+        Assertions.assertEquals(expectedType, result.getType());
+    }
+
+    private static Stream<Arguments> testFold() {
+        return Stream.of(
+                Arguments.of("Precedence", "Integer", "1 + 2 * 3", BigInteger.valueOf(7), Environment.Type.INTEGER),
+                Arguments.of("Group", "Integer", "(1 + 2) * 3", BigInteger.valueOf(9), Environment.Type.INTEGER),
+                Arguments.of("Decimal Division", "Decimal", "1.0 / 3.0", new BigDecimal("0.3"), Environment.Type.DECIMAL),
+                Arguments.of("Concatenation", "String", "\"a\" + 1 + \"b\"", "a1b", Environment.Type.STRING),
+                Arguments.of("Comparison", "Boolean", "1 < 2", Boolean.TRUE, Environment.Type.BOOLEAN),
+                Arguments.of("Logical", "Boolean", "TRUE && FALSE", Boolean.FALSE, Environment.Type.BOOLEAN),
+                Arguments.of("Constant Global", "Integer", "c * 2", BigInteger.valueOf(8), Environment.Type.INTEGER)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testNoFold(String test, String expression) {
+        Ast.Expression result = fold("VAL c: Integer = 4; VAR v: Integer = 1; FUN main(): Integer DO RETURN " + expression + "; END");
+        Assertions.assertEquals(Ast.Expression.Binary.class, result.getClass());
+    }
+
+    private static Stream<Arguments> testNoFold() {
+        return Stream.of(
+                Arguments.of("Mutable Global", "v + 1"),
+                Arguments.of("Division By Zero", "1 / 0"),
+                Arguments.of("Integer Overflow", "2147483647 + 1")
+        );
+    }
+
+    @Test
+    void testInterpreterAgrees() {
+        String input = "VAL c: Integer = 4; FUN main(): Integer DO RETURN (c + 2) * 3 - 10 / 4; END";
+        Object expected = new Interpreter(new Scope(null)).visit(analyze(input)).getValue();
+        Object actual = new Interpreter(new Scope(null)).visit(new ConstantFolder().apply(analyze(input))).getValue();
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Ast.Expression fold(String input) {
+        Ast.Source ast = new ConstantFolder().apply(analyze(input));
+        return ((Ast.Statement.Return) ast.getFunctions().get(0).getStatements().get(0)).getValue();
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
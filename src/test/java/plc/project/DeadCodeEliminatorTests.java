@@ -0,0 +1,73 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class DeadCodeEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testStatements(String test, String body, int statements, int removed) {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source ast = new Pipeline().add(new ConstantFolder()).add(eliminator).run(analyze("FUN main(): Integer DO " + body + " END"));
+        Assertions.assertEquals(statements, ast.getFunctions().get(0).getStatements().size());
+        Assertions.assertEquals(removed, eliminator.getRemovedStatements());
+    }
+
+    private static Stream<Arguments> testStatements() {
+        return Stream.of(
+                // FUN main(): Integer DO RETURN 0; END
+                Arguments.of("Live", "RETURN 0;", 1, 0),
+                // FUN main(): Integer DO RETURN 0; print(1); print(2); END
+                Arguments.of("After Return", "RETURN 0; print(1); print(2);", 1, 2),
+                // FUN main(): Integer DO IF TRUE DO print(1); ELSE print(2); END RETURN 0; END
+                Arguments.of("Constant If", "IF TRUE DO print(1); ELSE print(2); END RETURN 0;", 2, 2),
+                // FUN main(): Integer DO IF 1 > 2 DO print(1); END RETURN 0; END
+                Arguments.of("Folded If", "IF 1 > 2 DO print(1); END RETURN 0;", 1, 2),
+                // FUN main(): Integer DO WHILE FALSE DO print(1); END RETURN 0; END
+                Arguments.of("While False", "WHILE FALSE DO print(1); END RETURN 0;", 1, 2),
+                // FUN main(): Integer DO IF TRUE DO RETURN 1; END print(1); RETURN 0; END
+                Arguments.of("Returning Branch", "IF TRUE DO RETURN 1; END print(1); RETURN 0;", 1, 3),
+                // FUN main(): Integer DO IF TRUE DO LET x: Integer = 1; print(x); END RETURN 0; END
+                Arguments.of("Scoped Branch", "IF TRUE DO LET x: Integer = 1; print(x); END RETURN 0;", 2, 0)
+        );
+    }
+
+    @Test
+    void testUnreachableFunctions() {
+        String input = String.join("\n",
+                "FUN used(): Integer DO RETURN 1; END",
+                "FUN unused(): Integer DO print(0); RETURN 2; END",
+                "FUN main(): Integer DO RETURN used(); END"
+        );
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source ast = eliminator.apply(analyze(input));
+
+        Assertions.assertEquals(Arrays.asList("used", "main"), ast.getFunctions().stream().map(Ast.Function::getName).toList());
+        Assertions.assertEquals(List.of("unused/0"), eliminator.getRemovedFunctions());
+        Assertions.assertEquals(4, eliminator.getTotalStatements());
+        Assertions.assertEquals(2, eliminator.getRemovedStatements());
+        Assertions.assertEquals(BigInteger.ONE, new Interpreter(new Scope(null)).visit(ast).getValue());
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = analyze("FUN main(): Integer DO print(1); RETURN 0; END");
+        Assertions.assertSame(ast, new DeadCodeEliminator().apply(ast));
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
@@ -48,6 +48,94 @@ public class EndToEndGeneratorTests {
                                 "",
                                 "}"
                         )
+                ),
+                Arguments.of("Tail Recursion",
+                        // FUN sum(n: Integer, acc: Integer): Integer DO
+                        //     IF n == 0 DO RETURN acc; END
+                        //     RETURN sum(n - 1, acc + n);
+                        // END
+                        // FUN main(): Integer DO RETURN sum(10, 0); END
+                        "FUN sum(n: Integer, acc: Integer): Integer DO\n    IF n == 0 DO RETURN acc; END\n    RETURN sum(n - 1, acc + n);\nEND\nFUN main(): Integer DO RETURN sum(10, 0); END",
+                        String.join(System.lineSeparator(),
+                                "public class Main {",
+                                "",
+                                "    public static void main(String[] args) {",
+                                "        System.exit(new Main().main());",
+                                "    }",
+                                "",
+                                "    int sum(Integer n, Integer acc) {",
+                                "        tail:",
+                                "        while (true) {",
+                                "            if (n == 0) {",
+                                "                return acc;",
+                                "            }",
+                                "            {",
+                                "                Integer n$ = n - 1;",
+                                "                Integer acc$ = acc + n;",
+                                "                n = n$;",
+                                "                acc = acc$;",
+                                "                continue tail;",
+                                "            }",
+                                "        }",
+                                "    }",
+                                "    int main() {",
+                                "        return sum(10, 0);",
+                                "    }",
+                                "",
+                                "}"
+                        )
+                ),
+                Arguments.of("Tail Recursion Switch",
+                        // FUN count(n: Integer, acc: Integer): Integer DO
+                        //     IF n == 0 DO RETURN acc; END
+                        //     SWITCH n
+                        //         CASE 1:
+                        //             RETURN count(n - 1, acc + 1);
+                        //         DEFAULT
+                        //             RETURN count(n - 1, acc + 2);
+                        //     END
+                        // END
+                        // FUN main(): Integer DO RETURN count(3, 0); END
+                        "FUN count(n: Integer, acc: Integer): Integer DO\n    IF n == 0 DO RETURN acc; END\n    SWITCH n\n        CASE 1:\n            RETURN count(n - 1, acc + 1);\n        DEFAULT\n            RETURN count(n - 1, acc + 2);\n    END\nEND\nFUN main(): Integer DO RETURN count(3, 0); END",
+                        String.join(System.lineSeparator(),
+                                "public class Main {",
+                                "",
+                                "    public static void main(String[] args) {",
+                                "        System.exit(new Main().main());",
+                                "    }",
+                                "",
+                                "    int count(Integer n, Integer acc) {",
+                                "        tail:",
+                                "        while (true) {",
+                                "            if (n == 0) {",
+                                "                return acc;",
+                                "            }",
+                                "            switch (n) {",
+                                "                case 1:",
+                                "                    {",
+                                "                        Integer n$ = n - 1;",
+                                "                        Integer acc$ = acc + 1;",
+                                "                        n = n$;",
+                                "                        acc = acc$;",
+                                "                        continue tail;",
+                                "                    }",
+                                "                default:",
+                                "                    {",
+                                "                        Integer n$ = n - 1;",
+                                "                        Integer acc$ = acc + 2;",
+                                "                        n = n$;",
+                                "                        acc = acc$;",
+                                "                        continue tail;",
+                                "                    }",
+                                "            }",
+                                "        }",
+                                "    }",
+                                "    int main() {",
+                                "        return count(3, 0);",
+                                "    }",
+                                "",
+                                "}"
+                        )
                 )
         );
     }
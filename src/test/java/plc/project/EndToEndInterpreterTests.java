@@ -10,9 +10,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 import java.util.function.Function;
 
@@ -35,6 +39,16 @@ final class EndToEndInterpreterTests {
                 Arguments.of("Globals & No Return",
                         "VAR x: Integer = 1; VAR y: Integer = 10; FUN main() DO x + y; END",
                         Environment.NIL.getValue()
+                ),
+                // returns from within nested blocks, and from a callee
+                Arguments.of("Nested Return",
+                        "FUN find(n: Integer): Integer DO LET i: Integer = 0; WHILE TRUE DO IF i * i > n - 1 DO RETURN i; END i = i + 1; END END FUN main() DO RETURN find(50) * 10 + find(1); END",
+                        BigInteger.valueOf(81)
+                ),
+                // far deeper than the Java stack allows for non-tail calls
+                Arguments.of("Tail Recursion",
+                        "FUN sum(n: Integer, acc: Integer): Integer DO IF n == 0 DO RETURN acc; END RETURN sum(n - 1, acc + n); END FUN main() DO RETURN sum(1000000, 0); END",
+                        BigInteger.valueOf(500000500000L)
                 )
         );
     }
@@ -355,6 +369,145 @@ final class EndToEndInterpreterTests {
         );
     }
 
+    @ParameterizedTest(name = "resolved={0}, threshold={1}")
+    @MethodSource
+    void testConcurrentCalls(boolean resolved, int threshold) throws Exception {
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "VAL limit: Integer = 10;",
+                "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END",
+                "FUN sum(n: Integer): Integer DO LET i: Integer = 0; LET total: Integer = 0; WHILE i < n DO total = total + fib(i - i / limit * limit); i = i + 1; END RETURN total; END"
+        )).lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null), resolved, threshold);
+        interpreter.load(resolved ? new Resolver().apply(ast) : ast);
+        Environment.Function sum = interpreter.getScope().lookupFunction("sum", 1);
+
+        List<Future<Environment.PlcObject>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                BigInteger n = BigInteger.valueOf(i);
+                results.add(executor.submit(() -> sum.invoke(Environment.create(n))));
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals(sum.invoke(Environment.create(BigInteger.valueOf(i))).getValue(), results.get(i).get().getValue());
+        }
+    }
+
+    private static Stream<Arguments> testConcurrentCalls() {
+        return Stream.of(
+                Arguments.of(false, 0),
+                Arguments.of(true, 0),
+                Arguments.of(true, 50)
+        );
+    }
+
+    @ParameterizedTest(name = "resolved={0}")
+    @MethodSource
+    void testSwitchDispatch(boolean resolved) {
+        // the third case is not a literal, so every case is evaluated in order
+        String input = String.join("\n",
+                "FUN name(n: Integer): String DO",
+                "    SWITCH n",
+                "        CASE 1: RETURN \"one\";",
+                "        CASE 2: RETURN \"two\";",
+                "        CASE 1 + 2: RETURN \"three\";",
+                "        CASE 2: RETURN \"second two\";",
+                "        DEFAULT RETURN \"many\";",
+                "    END",
+                "END",
+                "FUN kind(c: Character): Integer DO",
+                "    LET result: Integer = 0;",
+                "    SWITCH c",
+                "        CASE 'a': result = 1;",
+                "        CASE 'b': result = 2;",
+                "        DEFAULT result = 3;",
+                "    END",
+                "    RETURN result;",
+                "END",
+                "FUN main(): String DO",
+                "    RETURN name(1) + name(2) + name(3) + name(4) + kind('a') + kind('b') + kind('z') + kind('a');",
+                "END"
+        );
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Environment.PlcObject result = new Interpreter(new Scope(null), resolved).visit(resolved ? new Resolver().apply(ast) : ast);
+        Assertions.assertEquals("onetwothreemany1231", result.getValue());
+    }
+
+    private static Stream<Arguments> testSwitchDispatch() {
+        return Stream.of(Arguments.of(false), Arguments.of(true));
+    }
+
+    @Test
+    void testBudget() {
+        // main is one step and each of the 10 iterations another
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Integer DO LET i: Integer = 0; WHILE i < 10 DO i = i + 1; END RETURN i; END").lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setBudget(11);
+        Assertions.assertEquals(BigInteger.TEN, interpreter.visit(ast).getValue());
+        Interpreter limited = new Interpreter(new Scope(null));
+        limited.setBudget(10);
+        Interpreter.Halted exception = Assertions.assertThrows(Interpreter.Halted.class, () -> limited.visit(ast));
+        Assertions.assertEquals("The execution budget of 10 steps is exhausted.", exception.getMessage());
+    }
+
+    @Test
+    void testBudgetPerCall() throws Exception {
+        // each call of loop is 6 steps, so calls on a reused thread only fit a budget of 10 if it is refilled
+        Ast.Source ast = new Parser(new Lexer("FUN loop(): Integer DO LET i: Integer = 0; WHILE i < 5 DO i = i + 1; END RETURN i; END").lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.load(ast);
+        Environment.Function loop = interpreter.getScope().lookupFunction("loop", 0);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            // the thread's context exists before the budget is set
+            Assertions.assertEquals(BigInteger.valueOf(5), executor.submit(() -> loop.invoke()).get().getValue());
+            interpreter.setBudget(10);
+            for (int i = 0; i < 2; i++) {
+                Assertions.assertEquals(BigInteger.valueOf(5), executor.submit(() -> loop.invoke()).get().getValue());
+                Assertions.assertEquals(BigInteger.valueOf(5), loop.invoke().getValue());
+            }
+            interpreter.setBudget(5);
+            java.util.concurrent.ExecutionException exception = Assertions.assertThrows(java.util.concurrent.ExecutionException.class, () -> executor.submit(() -> loop.invoke()).get());
+            Assertions.assertEquals("The execution budget of 5 steps is exhausted.", exception.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void testInfiniteLoop() {
+        Ast.Source ast = new Parser(new Lexer("FUN loop(): Integer DO RETURN loop(); END FUN main() DO WHILE TRUE DO loop(); END END").lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null), true);
+        interpreter.setBudget(1_000_000);
+        Assertions.assertThrows(Interpreter.Halted.class, () -> interpreter.visit(new Resolver().apply(ast)));
+    }
+
+    @Test
+    void testCancel() throws Exception {
+        Ast.Source ast = new Parser(new Lexer("FUN main() DO WHILE TRUE DO END END").lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Environment.PlcObject> result = executor.submit(() -> interpreter.visit(ast));
+            Thread.sleep(50);
+            interpreter.cancel();
+            java.util.concurrent.ExecutionException exception = Assertions.assertThrows(java.util.concurrent.ExecutionException.class, result::get);
+            Assertions.assertInstanceOf(Interpreter.Halted.class, exception.getCause());
+        }
+    }
+
+    @Test
+    void testCancelCompiled() throws Exception {
+        // spin is compiled on its first call, so the second loops in compiled code
+        Ast.Source ast = new Parser(new Lexer("FUN spin(forever: Boolean) DO WHILE forever DO END END FUN main() DO spin(FALSE); spin(TRUE); END").lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null), false, 1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Environment.PlcObject> result = executor.submit(() -> interpreter.visit(ast));
+            Thread.sleep(50);
+            interpreter.cancel();
+            java.util.concurrent.ExecutionException exception = Assertions.assertThrows(java.util.concurrent.ExecutionException.class, () -> result.get(5, java.util.concurrent.TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(Interpreter.Halted.class, exception.getCause());
+            Assertions.assertTrue(interpreter.getCompilations() > 0);
+        }
+    }
+
     private static <T extends Ast> Scope test(String input, Object expected, Scope scope, Function<Parser, T> function) {
         Lexer lexer = new Lexer(input);
         Parser parser = new Parser(lexer.lex());
@@ -0,0 +1,83 @@
+package plc.project;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+final class EventsTests {
+
+    private static final String SOURCE = String.join("\n",
+            "FUN square(x: Integer): Integer DO",
+            "    RETURN x * x;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN square(3);",
+            "END"
+    );
+
+    @Test
+    void testEvents() throws IOException {
+        Path file = Files.createTempFile("plc", ".jfr");
+        List<Token> tokens;
+        Ast.Source ast;
+        StringWriter generated = new StringWriter();
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("plc.Lex", "plc.Parse", "plc.Analyze", "plc.Generate", "plc.Call")) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            tokens = new Lexer(SOURCE).lex();
+            ast = new Parser(tokens).parseSource();
+            new Analyzer(new Scope(null)).visit(ast);
+            new Generator(new PrintWriter(generated)).visit(ast);
+            new Interpreter(new Scope(null), true).visit(new Resolver().apply(ast));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events;
+        try {
+            events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("plc."))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+
+        RecordedEvent lex = find(events, "plc.Lex");
+        Assertions.assertEquals(SOURCE.length(), lex.getInt("characters"));
+        Assertions.assertEquals(tokens.size(), lex.getInt("tokens"));
+
+        RecordedEvent parse = find(events, "plc.Parse");
+        Assertions.assertEquals(tokens.size(), parse.getInt("tokens"));
+        Assertions.assertEquals(Nodes.count(ast), parse.getInt("nodes"));
+
+        Assertions.assertEquals(Nodes.count(ast), find(events, "plc.Analyze").getInt("nodes"));
+        Assertions.assertEquals(generated.toString().length(), find(events, "plc.Generate").getLong("characters"));
+
+        List<String> calls = events.stream()
+                .filter(e -> e.getEventType().getName().equals("plc.Call"))
+                .map(e -> e.getString("function") + "/" + e.getInt("arguments"))
+                .sorted()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(List.of("main/0", "square/1"), calls);
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event"));
+    }
+
+}
@@ -0,0 +1,92 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+final class InMemoryCompilerTests {
+
+    private static final String FIB = String.join("\n",
+            "VAR calls: Integer = 0;",
+            "FUN fib(n: Integer): Integer DO",
+            "    calls = calls + 1;",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "FUN main(): Integer DO",
+            "    print(fib(10));",
+            "    RETURN calls;",
+            "END"
+    );
+
+    @Test
+    void testRun() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(output));
+            Assertions.assertEquals(177, compiler.run(analyze(FIB)));
+        } finally {
+            System.setOut(out);
+        }
+        Assertions.assertEquals("55" + System.lineSeparator(), output.toString());
+    }
+
+    @Test
+    void testCache() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        Assertions.assertEquals(0, compiler.run(analyze("FUN main(): Integer DO RETURN 0; END")));
+        Assertions.assertEquals(0, compiler.run(analyze("FUN main(): Integer DO RETURN 0; END")));
+        Assertions.assertEquals(1, compiler.run(analyze("FUN main(): Integer DO RETURN 1; END")));
+        Assertions.assertEquals(2, compiler.getCompilations());
+        Assertions.assertEquals(1, compiler.getHits());
+    }
+
+    @Test
+    void testGlobalsPerRun() {
+        // globals are fields of Main, so a cached class still starts over
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        String input = "VAR x: Integer = 1; FUN main(): Integer DO x = x + 1; RETURN x; END";
+        Assertions.assertEquals(2, compiler.run(analyze(input)));
+        Assertions.assertEquals(2, compiler.run(analyze(input)));
+    }
+
+    @Test
+    void testSwitchReturn() {
+        // a break after RETURN would be unreachable and fail to compile
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        String input = String.join("\n",
+                "FUN sign(n: Integer): Integer DO",
+                "    SWITCH n",
+                "        CASE 0:",
+                "            RETURN 0;",
+                "        CASE 1:",
+                "            RETURN 1;",
+                "        DEFAULT",
+                "            RETURN 2;",
+                "    END",
+                "END",
+                "FUN main(): Integer DO RETURN sign(1) + sign(5); END"
+        );
+        Assertions.assertEquals(3, compiler.run(analyze(input)));
+    }
+
+    @Test
+    void testCompileError() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> compiler.compile("public class Main { int main() { return; } }"));
+        Assertions.assertTrue(exception.getMessage().startsWith("The generated source does not compile:"), exception.getMessage());
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+final class InstrumentedInterpreterTests {
+
+    private static final String LOOP = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i: Integer = 0;",
+            "    WHILE i < 10 DO",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN i;",
+            "END"
+    );
+
+    @Test
+    void testCounts() {
+        Ast.Source ast = new Parser(new Lexer(LOOP).lex()).parseSource();
+        InstrumentedInterpreter interpreter = new InstrumentedInterpreter(new Scope(null), false);
+        Assertions.assertEquals(BigInteger.TEN, interpreter.visit(ast).getValue());
+
+        Ast.Statement.While loop = (Ast.Statement.While) ast.getFunctions().get(0).getStatements().get(1);
+        Assertions.assertEquals(1, interpreter.getCount(loop));
+        Assertions.assertEquals(11, interpreter.getCount(loop.getCondition()));
+        Assertions.assertEquals(10, interpreter.getCount(loop.getStatements().get(0)));
+        Assertions.assertTrue(interpreter.getNanos(loop) >= interpreter.getNanos(loop.getStatements().get(0)));
+    }
+
+    @Test
+    void testSharedAst() {
+        // each interpreter numbers the nodes on its own, without touching the AST
+        Ast.Source ast = new Parser(new Lexer(LOOP).lex()).parseSource();
+        InstrumentedInterpreter first = new InstrumentedInterpreter(new Scope(null), false);
+        InstrumentedInterpreter second = new InstrumentedInterpreter(new Scope(null), false);
+        first.load(ast);
+        Assertions.assertEquals(BigInteger.TEN, second.visit(ast).getValue());
+
+        Ast.Statement.While loop = (Ast.Statement.While) ast.getFunctions().get(0).getStatements().get(1);
+        Assertions.assertEquals(0, first.getCount(loop));
+        Assertions.assertEquals(1, second.getCount(loop));
+        Assertions.assertEquals(0, new InstrumentedInterpreter(new Scope(null), false).getCount(loop));
+    }
+
+    @Test
+    void testReport() {
+        Ast.Source ast = new Parser(new Lexer(LOOP).lex()).parseSource();
+        InstrumentedInterpreter interpreter = new InstrumentedInterpreter(new Scope(null), true);
+        interpreter.visit(new Resolver().apply(ast));
+        String[] lines = interpreter.report(LOOP).split(System.lineSeparator());
+        Assertions.assertEquals(8, lines.length);
+        Assertions.assertTrue(lines[1].endsWith("  FUN main(): Integer DO") && lines[1].trim().startsWith("FUN"), lines[1]);
+        Assertions.assertTrue(lines[3].trim().startsWith("1 "), lines[3]);
+        Assertions.assertTrue(lines[4].trim().startsWith("10 "), lines[4]);
+        Assertions.assertTrue(lines[4].endsWith("  i = i + 1;"), lines[4]);
+    }
+
+}
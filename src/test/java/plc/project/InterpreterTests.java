@@ -368,6 +368,38 @@ final class InterpreterTests {
                                 new Ast.Expression.Literal(new BigDecimal("3.4"))
                         ),
                         new BigDecimal("0.4")
+                ),
+                // -7 / 2
+                Arguments.of("Integer Division",
+                        new Ast.Expression.Binary("/",
+                                new Ast.Expression.Literal(BigInteger.valueOf(-7)),
+                                new Ast.Expression.Literal(BigInteger.TWO)
+                        ),
+                        BigInteger.valueOf(-3)
+                ),
+                // 9223372036854775807 + 1
+                Arguments.of("Addition Overflow",
+                        new Ast.Expression.Binary("+",
+                                new Ast.Expression.Literal(BigInteger.valueOf(Long.MAX_VALUE)),
+                                new Ast.Expression.Literal(BigInteger.ONE)
+                        ),
+                        BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)
+                ),
+                // 4294967296 * 4294967296
+                Arguments.of("Multiplication Overflow",
+                        new Ast.Expression.Binary("*",
+                                new Ast.Expression.Literal(BigInteger.valueOf(4294967296L)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(4294967296L))
+                        ),
+                        BigInteger.ONE.shiftLeft(64)
+                ),
+                // 1 / 0
+                Arguments.of("Division By Zero",
+                        new Ast.Expression.Binary("/",
+                                new Ast.Expression.Literal(BigInteger.ONE),
+                                new Ast.Expression.Literal(BigInteger.ZERO)
+                        ),
+                        null
                 )
         );
     }
@@ -423,6 +455,19 @@ final class InterpreterTests {
         );
     }
 
+    @Test
+    void testDirectFunctionExpression() {
+        // concat("a", "b", "c"), where concat is called without an argument list
+        Scope scope = new Scope(null);
+        scope.defineFunction("concat", (first, second, third) -> Environment.create("" + first.getValue() + second.getValue() + third.getValue()));
+        test(new Ast.Expression.Function("concat", Arrays.asList(
+                new Ast.Expression.Literal("a"),
+                new Ast.Expression.Literal("b"),
+                new Ast.Expression.Literal("c")
+        )), "abc", scope);
+        Assertions.assertEquals("xyz", scope.lookupFunction("concat", 3).invoke(Arrays.asList(Environment.create("x"), Environment.create("y"), Environment.create("z"))).getValue());
+    }
+
     @Test
     void testPlcList() {
         // [1, 5, 10]
@@ -437,6 +482,26 @@ final class InterpreterTests {
         test(ast, expected, new Scope(null));
     }
 
+    @Test
+    void testCanonicalValues() {
+        // 1 < 10, 1 + 10, 1000 * 1000
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        Assertions.assertSame(Environment.TRUE, interpreter.visit(new Ast.Expression.Binary("<",
+                new Ast.Expression.Literal(BigInteger.ONE),
+                new Ast.Expression.Literal(BigInteger.TEN)
+        )));
+        Assertions.assertSame(Environment.create(BigInteger.valueOf(11)), interpreter.visit(new Ast.Expression.Binary("+",
+                new Ast.Expression.Literal(BigInteger.ONE),
+                new Ast.Expression.Literal(BigInteger.TEN)
+        )));
+        Environment.PlcObject large = interpreter.visit(new Ast.Expression.Binary("*",
+                new Ast.Expression.Literal(BigInteger.valueOf(1000)),
+                new Ast.Expression.Literal(BigInteger.valueOf(1000))
+        ));
+        Assertions.assertEquals(BigInteger.valueOf(1000000), large.getValue());
+        Assertions.assertSame(large.getValue(), large.getValue());
+    }
+
     private static Scope test(Ast ast, Object expected, Scope scope) {
         Interpreter interpreter = new Interpreter(scope);
         if (expected != null) {
@@ -0,0 +1,69 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+final class OutputTests {
+
+    private static final String COUNT = "FUN main() DO LET i: Integer = 0; WHILE i < 1000 DO print(i); i = i + 1; END END";
+
+    @Test
+    void testBuffered() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Output output = new Output(stream);
+        output.println("first");
+        output.println(1);
+        Assertions.assertEquals(0, stream.size());
+        output.flush();
+        Assertions.assertEquals("first" + System.lineSeparator() + "1" + System.lineSeparator(), stream.toString());
+    }
+
+    @Test
+    void testInterpreter() {
+        // a buffer smaller than the output is written out several times, in order
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOutput(new Output(stream, 100));
+        interpreter.visit(new Parser(new Lexer(COUNT).lex()).parseSource());
+        Assertions.assertEquals(expected(), stream.toString());
+    }
+
+    @Test
+    void testChannel() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOutput(new Output(Channels.newChannel(stream), Output.DEFAULT_SIZE));
+        interpreter.visit(new Parser(new Lexer(COUNT).lex()).parseSource());
+        Assertions.assertEquals(expected(), stream.toString());
+    }
+
+    @Test
+    void testFlushedOnError() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOutput(new Output(stream));
+        Assertions.assertThrows(RuntimeException.class, () -> interpreter.visit(new Parser(new Lexer("FUN main() DO print(\"before\"); undefined(); END").lex()).parseSource()));
+        Assertions.assertEquals("before" + System.lineSeparator(), stream.toString());
+    }
+
+    @Test
+    void testFlushedOnGlobalError() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOutput(new Output(stream));
+        Assertions.assertThrows(RuntimeException.class, () -> interpreter.visit(new Parser(new Lexer("VAR x: Any = print(\"before\"); VAR y: Integer = undefined; FUN main() DO END").lex()).parseSource()));
+        Assertions.assertEquals("before" + System.lineSeparator(), stream.toString());
+    }
+
+    private static String expected() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append(i).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,53 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.Map;
+
+final class ProfilerTests {
+
+    private static final String SPIN = String.join("\n",
+            "FUN spin(n: Integer): Integer DO",
+            "    LET i: Integer = 0;",
+            "    WHILE i < n DO",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN i;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN spin(300000);",
+            "END"
+    );
+
+    @Test
+    void testIndex() {
+        Ast.Source ast = new Parser(new Lexer(SPIN).lex()).parseSource();
+        Assertions.assertEquals(0, ast.getFunctions().get(0).getIndex());
+        Assertions.assertEquals(SPIN.indexOf("WHILE"), ast.getFunctions().get(0).getStatements().get(1).getIndex());
+    }
+
+    @Test
+    void testSamples() {
+        Interpreter interpreter = new Interpreter(new Scope(null), true);
+        try (Profiler profiler = new Profiler(100)) {
+            interpreter.setProfiler(profiler);
+            profiler.start();
+            interpreter.visit(new Resolver().apply(new Parser(new Lexer(SPIN).lex()).parseSource()));
+            profiler.stop();
+
+            Map<String, Long> samples = profiler.getSamples();
+            String loop = "main;spin;WHILE@" + SPIN.indexOf("WHILE");
+            Assertions.assertTrue(samples.containsKey(loop), samples.toString());
+            for (String stack : samples.keySet()) {
+                Assertions.assertTrue(stack.startsWith("main"), stack);
+            }
+
+            StringWriter writer = new StringWriter();
+            profiler.writeCollapsed(writer);
+            Assertions.assertTrue(writer.toString().contains(loop + " " + samples.get(loop) + System.lineSeparator()), writer.toString());
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+
+final class ProgramTests {
+
+    private static final String COUNTER = "VAR count: Integer = 0; FUN next(): Integer DO count = count + 1; RETURN count; END FUN main(): Integer DO next(); RETURN next(); END";
+
+    @Test
+    void testRunsAreIsolated() {
+        Program program = Program.prepare(COUNTER);
+        Assertions.assertEquals(BigInteger.valueOf(2), program.run().getValue());
+        Assertions.assertEquals(BigInteger.valueOf(2), program.run().getValue());
+    }
+
+    @Test
+    void testInstantiate() {
+        Program program = Program.prepare(COUNTER);
+        Interpreter first = program.instantiate();
+        Interpreter second = program.instantiate();
+        Environment.Function next = first.getScope().lookupFunction("next", 0);
+        next.invoke();
+        Assertions.assertEquals(BigInteger.valueOf(2), next.invoke().getValue());
+        Assertions.assertEquals(BigInteger.ONE, second.getScope().lookupFunction("next", 0).invoke().getValue());
+    }
+
+    @Test
+    void testOutput() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Program.prepare("FUN main(): Integer DO print(\"Hello\"); RETURN 0; END").run(new Output(stream));
+        Assertions.assertEquals("Hello" + System.lineSeparator(), stream.toString());
+    }
+
+    @Test
+    void testAnalysisError() {
+        Assertions.assertThrows(RuntimeException.class, () -> Program.prepare("FUN main(): Integer DO RETURN \"string\"; END"));
+    }
+
+}
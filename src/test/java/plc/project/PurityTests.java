@@ -0,0 +1,84 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class PurityTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testPure(String test, String input, boolean expected) {
+        Ast.Source ast = parse(input);
+        Assertions.assertEquals(expected, Purity.getPureFunctions(ast).contains(ast.getFunctions().get(0)));
+    }
+
+    private static Stream<Arguments> testPure() {
+        return Stream.of(
+                Arguments.of("Parameters", "FUN f(a: Integer, b: Integer): Integer DO RETURN a * b + 1; END", true),
+                Arguments.of("Locals", "FUN f(n: Integer): Integer DO LET i: Integer = 0; WHILE i < n DO i = i + 1; END RETURN i; END", true),
+                Arguments.of("Constant", "VAL k: Integer = 2; FUN f(n: Integer): Integer DO RETURN n * k; END", true),
+                Arguments.of("Recursion", "FUN f(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN f(n - 1) + f(n - 2); END", true),
+                Arguments.of("Mutual Recursion", "FUN even(n: Integer): Boolean DO IF n == 0 DO RETURN TRUE; END RETURN odd(n - 1); END FUN odd(n: Integer): Boolean DO IF n == 0 DO RETURN FALSE; END RETURN even(n - 1); END", true),
+                Arguments.of("Print", "FUN f(n: Integer): Integer DO print(n); RETURN n; END", false),
+                Arguments.of("Global Read", "VAR g: Integer = 1; FUN f(n: Integer): Integer DO RETURN n + g; END", false),
+                Arguments.of("Global Write", "VAR g: Integer = 1; FUN f(n: Integer) DO g = n; END", false),
+                Arguments.of("Out Of Scope", "VAR g: Integer = 1; FUN f(n: Integer): Integer DO IF n > 0 DO LET g: Integer = n; END RETURN g; END", false),
+                Arguments.of("List", "LIST l: Integer = [1, 2]; FUN f(n: Integer): Integer DO RETURN l[n]; END", false),
+                Arguments.of("Impure Callee", "FUN f(n: Integer): Integer DO RETURN g(n); END FUN g(n: Integer): Integer DO print(n); RETURN n; END", false),
+                Arguments.of("Undefined Callee", "FUN f(n: Integer): Integer DO RETURN g(n); END", false)
+        );
+    }
+
+    @Test
+    void testMemoization() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setMemoization(64);
+        Ast.Source ast = parse("FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(30); END");
+        Assertions.assertEquals(BigInteger.valueOf(832040), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(32, interpreter.getMisses()); // fib(0) to fib(30) and main
+        Assertions.assertEquals(28, interpreter.getHits());
+    }
+
+    @Test
+    void testMemoizationCompiled() {
+        // fib stays interpreted so its recursive calls still reach the cache,
+        // while the impure main is compiled on its first call
+        Interpreter interpreter = new Interpreter(new Scope(null), false, 1);
+        interpreter.setMemoization(64);
+        Ast.Source ast = parse("VAR calls: Integer = 0; FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO calls = calls + 1; RETURN fib(30); END");
+        Assertions.assertEquals(BigInteger.valueOf(832040), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(31, interpreter.getMisses()); // fib(0) to fib(30)
+        Assertions.assertEquals(28, interpreter.getHits());
+        Assertions.assertEquals(1, interpreter.getCompilations());
+    }
+
+    @Test
+    void testMemoizationCapacity() {
+        // with one entry, fib(n - 2) has always been evicted by the time it is called
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setMemoization(1);
+        Ast.Source ast = parse("FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(10); END");
+        Assertions.assertEquals(BigInteger.valueOf(55), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(0, interpreter.getHits());
+    }
+
+    @Test
+    void testImpureNotMemoized() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setMemoization(64);
+        Ast.Source ast = parse("VAR calls: Integer = 0; FUN count(n: Integer): Integer DO calls = calls + 1; RETURN calls; END FUN main(): Integer DO RETURN count(1) + count(1) * 10; END");
+        Assertions.assertEquals(BigInteger.valueOf(21), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(0, interpreter.getHits() + interpreter.getMisses());
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
@@ -0,0 +1,81 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class ResolverTests {
+
+    @Test
+    void testCoordinates() {
+        // VAR g: Integer = 1; FUN f(a: Integer, b: Integer): Integer DO LET c: Integer = a; RETURN g + b + c; END
+        Ast.Source ast = resolve("VAR g: Integer = 1; FUN f(a: Integer, b: Integer): Integer DO LET c: Integer = a; RETURN g + b + c; END FUN main(): Integer DO RETURN f(1, 2); END");
+        Ast.Function function = ast.getFunctions().get(0);
+        Assertions.assertEquals(0, ast.getGlobals().get(0).getSlot());
+        Assertions.assertEquals(3, function.getFrameSize());
+
+        Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) function.getStatements().get(0);
+        Assertions.assertEquals(2, declaration.getSlot());
+        assertSlot(declaration.getValue().get(), 0, 0);
+
+        Ast.Expression.Binary sum = (Ast.Expression.Binary) ((Ast.Statement.Return) function.getStatements().get(1)).getValue();
+        Ast.Expression.Binary inner = (Ast.Expression.Binary) sum.getLeft();
+        assertSlot(inner.getLeft(), 1, 0);
+        assertSlot(inner.getRight(), 0, 1);
+        assertSlot(sum.getRight(), 0, 2);
+    }
+
+    @Test
+    void testBlockSlotsReused() {
+        // FUN main(): Integer DO IF TRUE DO LET a: Integer = 1; ELSE LET b: Integer = 2; END WHILE FALSE DO LET c: Integer = 3; LET d: Integer = 4; END RETURN 0; END
+        Ast.Source ast = resolve("FUN main(): Integer DO IF TRUE DO LET a: Integer = 1; ELSE LET b: Integer = 2; END WHILE FALSE DO LET c: Integer = 3; LET d: Integer = 4; END RETURN 0; END");
+        Assertions.assertEquals(2, ast.getFunctions().get(0).getFrameSize());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInterpreter(String test, String input, Object expected) {
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null), true).visit(resolve(input)).getValue());
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(resolve(input)).getValue());
+    }
+
+    private static Stream<Arguments> testInterpreter() {
+        return Stream.of(
+                Arguments.of("Recursion",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(10); END",
+                        BigInteger.valueOf(55)
+                ),
+                Arguments.of("Loop",
+                        "VAR total: Integer = 0; FUN main(): Integer DO LET i: Integer = 0; WHILE i < 5 DO LET j: Integer = i * 2; total = total + j; i = i + 1; END RETURN total; END",
+                        BigInteger.valueOf(20)
+                ),
+                Arguments.of("Shadowed Global",
+                        "VAR x: Integer = 1; FUN main(): Integer DO LET x: Integer = 2; RETURN x; END",
+                        BigInteger.valueOf(2)
+                )
+        );
+    }
+
+    @Test
+    void testUndefined() {
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Integer DO RETURN x; END").lex()).parseSource();
+        Assertions.assertThrows(RuntimeException.class, () -> new Resolver().apply(ast));
+    }
+
+    private static void assertSlot(Ast.Expression expression, int depth, int slot) {
+        Assertions.assertEquals(depth, ((Ast.Expression.Access) expression).getDepth());
+        Assertions.assertEquals(slot, ((Ast.Expression.Access) expression).getSlot());
+    }
+
+    private static Ast.Source resolve(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return new Resolver().apply(ast);
+    }
+
+}
@@ -0,0 +1,88 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+
+final class RewriterTests {
+
+    /**
+     * Rewrites every integer literal {@code 1} into {@code 2}.
+     */
+    private static final class OneToTwo extends Rewriter {
+
+        @Override
+        public Ast visit(Ast.Expression.Literal ast) {
+            if (BigInteger.ONE.equals(ast.getLiteral())) {
+                Ast.Expression.Literal literal = new Ast.Expression.Literal(BigInteger.TWO);
+                literal.setType(Environment.Type.INTEGER);
+                return literal;
+            }
+            return ast;
+        }
+
+    }
+
+    @Test
+    void testUnchanged() {
+        // VAR x: Integer = 0; FUN main(): Integer DO RETURN x; END
+        Ast.Source ast = analyze("VAR x: Integer = 0; FUN main(): Integer DO RETURN x; END");
+        Assertions.assertSame(ast, new OneToTwo().apply(ast));
+    }
+
+    @Test
+    void testRebuildsSpine() {
+        // VAR x: Integer = 0; FUN f(): Integer DO RETURN x; END FUN main(): Integer DO RETURN x + 1; END
+        Ast.Source ast = analyze("VAR x: Integer = 0; FUN f(): Integer DO RETURN x; END FUN main(): Integer DO RETURN x + 1; END");
+        Ast.Source rewritten = new OneToTwo().apply(ast);
+
+        Assertions.assertNotSame(ast, rewritten);
+        Assertions.assertSame(ast.getGlobals(), rewritten.getGlobals());
+        Assertions.assertSame(ast.getFunctions().get(0), rewritten.getFunctions().get(0));
+
+        Ast.Function main = rewritten.getFunctions().get(1);
+        Assertions.assertEquals(ast.getFunctions().get(1).getFunction(), main.getFunction());
+
+        Ast.Expression.Binary binary = (Ast.Expression.Binary) ((Ast.Statement.Return) main.getStatements().get(0)).getValue();
+        Ast.Expression.Binary original = (Ast.Expression.Binary) ((Ast.Statement.Return) ast.getFunctions().get(1).getStatements().get(0)).getValue();
+        Assertions.assertSame(original.getLeft(), binary.getLeft());
+        Assertions.assertEquals(Environment.Type.INTEGER, binary.getType());
+        Assertions.assertEquals(BigInteger.TWO, ((Ast.Expression.Literal) binary.getRight()).getLiteral());
+    }
+
+    @Test
+    void testPreservesAnnotations() {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), "x");
+        access.setVariable(new Environment.Variable("x", "x", Environment.Type.INTEGER, true, Environment.NIL));
+        Ast.Expression.Literal one = new Ast.Expression.Literal(BigInteger.ONE);
+        one.setType(Environment.Type.INTEGER);
+        Ast.Expression.Function call = new Ast.Expression.Function("print", Arrays.asList(access, one));
+        call.setFunction(new Environment.Function("print", "System.out.println", Arrays.asList(Environment.Type.ANY, Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL));
+
+        Ast.Expression.Function rewritten = (Ast.Expression.Function) new OneToTwo().visit(call);
+        Assertions.assertNotSame(call, rewritten);
+        Assertions.assertEquals(call.getFunction(), rewritten.getFunction());
+        Assertions.assertSame(access, rewritten.getArguments().get(0));
+    }
+
+    @Test
+    void testPipeline() {
+        Ast.Source ast = analyze("FUN main(): Integer DO RETURN 1; END");
+        Pipeline pipeline = new Pipeline().add(new OneToTwo()).add(source -> source);
+        Ast.Source result = pipeline.run(ast);
+
+        Assertions.assertEquals(BigInteger.TWO, new Interpreter(new Scope(null)).visit(result).getValue());
+        Assertions.assertEquals(2, pipeline.getTimings().size());
+        Assertions.assertTrue(pipeline.getTimings().containsKey("OneToTwo"));
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
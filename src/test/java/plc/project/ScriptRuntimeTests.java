@@ -0,0 +1,43 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+final class ScriptRuntimeTests {
+
+    @Test
+    void testSubmit() throws Exception {
+        Program program = Program.prepare("VAR count: Integer = 0; FUN main(): Integer DO WHILE count < 100 DO count = count + 1; END RETURN count; END");
+        List<CompletableFuture<Environment.PlcObject>> results = new ArrayList<>();
+        try (ScriptRuntime runtime = new ScriptRuntime()) {
+            for (int i = 0; i < 500; i++) {
+                results.add(runtime.submit(program));
+            }
+            for (CompletableFuture<Environment.PlcObject> result : results) {
+                Assertions.assertEquals(BigInteger.valueOf(100), result.get().getValue());
+            }
+            ScriptRuntime.Metrics metrics = runtime.getMetrics();
+            Assertions.assertEquals(500, metrics.getCount());
+            Assertions.assertEquals(0, metrics.getFailures());
+            Assertions.assertTrue(metrics.getPercentile(50) <= metrics.getPercentile(99));
+            Assertions.assertTrue(metrics.getPercentile(99) <= metrics.getMax());
+        }
+    }
+
+    @Test
+    void testFailure() {
+        Program program = Program.prepare("FUN main(): Integer DO RETURN 1 / 0; END");
+        try (ScriptRuntime runtime = new ScriptRuntime()) {
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> runtime.submit(program).get());
+            Assertions.assertInstanceOf(ArithmeticException.class, exception.getCause());
+            Assertions.assertEquals(1, runtime.getMetrics().getFailures());
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class SpecializingInterpreterTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSource(String test, String input, Object expected) {
+        Assertions.assertEquals(expected, new SpecializingInterpreter(new Scope(null)).run(resolve(input)).getValue());
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null), true).visit(resolve(input)).getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main",
+                        "FUN main(): Integer DO RETURN 0; END",
+                        BigInteger.ZERO
+                ),
+                Arguments.of("Binary Global",
+                        "VAR x: Integer = 1 + 2; VAL s: String = \"a\" + x; FUN main(): String DO RETURN s + x; END",
+                        "a33"
+                ),
+                Arguments.of("Globals & No Return",
+                        "VAR x: Integer = 1; VAR y: Integer = 10; FUN main(): Integer DO x + y; END",
+                        Environment.NIL.getValue()
+                ),
+                Arguments.of("Recursion",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(10); END",
+                        BigInteger.valueOf(55)
+                ),
+                Arguments.of("Loop",
+                        "VAR total: Integer = 0; FUN main(): Integer DO LET i: Integer = 0; WHILE i < 5 DO LET j: Integer = i * 2; total = total + j; i = i + 1; END RETURN total; END",
+                        BigInteger.valueOf(20)
+                ),
+                Arguments.of("Return From Loop",
+                        "FUN main(): Integer DO LET i: Integer = 0; WHILE TRUE DO IF i == 3 DO RETURN i; END i = i + 1; END RETURN 0; END",
+                        BigInteger.valueOf(3)
+                ),
+                Arguments.of("Concatenation",
+                        "FUN main(): String DO LET s: String = \"\"; LET i: Integer = 0; WHILE i < 3 DO s = s + \"ab\"; i = i + 1; END RETURN s; END",
+                        "ababab"
+                )
+        );
+    }
+
+    @Test
+    void testSpecialization() {
+        // integer add, integer compare and string concat sites, each specialized once
+        SpecializingInterpreter interpreter = new SpecializingInterpreter(new Scope(null));
+        Ast.Source ast = resolve("FUN main(): String DO LET i: Integer = 0; LET s: String = \"\"; WHILE i < 10 DO s = s + \"a\"; i = i + 1; END RETURN s; END");
+        Assertions.assertEquals("aaaaaaaaaa", interpreter.run(ast).getValue());
+        Assertions.assertEquals(3, interpreter.getSpecializations());
+        Assertions.assertEquals(0, interpreter.getDeoptimizations());
+    }
+
+    @Test
+    void testDeoptimizeOnOverflow() {
+        // doubles 1 until it no longer fits in a long
+        SpecializingInterpreter interpreter = new SpecializingInterpreter(new Scope(null));
+        Ast.Source ast = resolve("FUN main(): Integer DO LET x: Integer = 1; LET i: Integer = 0; WHILE i < 70 DO x = x * 2; i = i + 1; END RETURN x; END");
+        Assertions.assertEquals(BigInteger.TWO.pow(70), interpreter.run(ast).getValue());
+        Assertions.assertEquals(1, interpreter.getDeoptimizations());
+    }
+
+    @Test
+    void testDeoptimizeOnTypeChange() {
+        // the same site sees Integers, then Strings
+        SpecializingInterpreter interpreter = new SpecializingInterpreter(new Scope(null));
+        Ast.Source ast = resolve("FUN add(a: Any, b: Any): Any DO RETURN a + b; END FUN main(): Any DO add(1, 2); RETURN add(\"a\", \"b\"); END");
+        Assertions.assertEquals("ab", interpreter.run(ast).getValue());
+        Assertions.assertEquals(1, interpreter.getDeoptimizations());
+    }
+
+    @Test
+    void testImmutableGlobal() {
+        Ast.Source ast = resolve("VAL x: Integer = 1; FUN main(): Integer DO x = 2; END");
+        Assertions.assertThrows(RuntimeException.class, () -> new SpecializingInterpreter(new Scope(null)).run(ast));
+    }
+
+    @Test
+    void testShortCircuit() {
+        // side() runs once for each right operand the left one does not decide
+        String input = "FUN side(): Boolean DO print(\"side\"); RETURN TRUE; END FUN check(x: Boolean): Boolean DO LET a: Boolean = x && side(); LET b: Boolean = x || side(); RETURN a || b; END FUN main(): Boolean DO RETURN check(FALSE) && check(TRUE) && check(FALSE); END";
+        String expected = String.join(System.lineSeparator(), "side", "side", "side", "");
+        Assertions.assertEquals(expected, output(() -> new SpecializingInterpreter(new Scope(null)).run(resolve(input))));
+        Assertions.assertEquals(expected, output(() -> new Interpreter(new Scope(null), true).visit(resolve(input))));
+    }
+
+    private static String output(Runnable runnable) {
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            runnable.run();
+        } finally {
+            System.setOut(sysout);
+        }
+        return out.toString();
+    }
+
+    private static Ast.Source resolve(String input) {
+        return new Resolver().apply(new Parser(new Lexer(input).lex()).parseSource());
+    }
+
+}
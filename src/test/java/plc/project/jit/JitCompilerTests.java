@@ -0,0 +1,151 @@
+package plc.project.jit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import plc.project.Ast;
+import plc.project.Environment;
+import plc.project.Interpreter;
+import plc.project.Lexer;
+import plc.project.Parser;
+import plc.project.Resolver;
+import plc.project.Scope;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Sources run by an interpreter compiling every function on its first call,
+ * checked against the plain interpreter.
+ */
+final class JitCompilerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input, Object expected, int compilations) {
+        Interpreter interpreter = new Interpreter(new Scope(null), false, 1);
+        Assertions.assertEquals(expected, interpreter.visit(parse(input)).getValue());
+        Assertions.assertEquals(compilations, interpreter.getCompilations());
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(parse(input)).getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main",
+                        "FUN main(): Integer DO RETURN 0; END",
+                        BigInteger.ZERO,
+                        1
+                ),
+                Arguments.of("No Return",
+                        "VAR x: Integer = 1; VAR y: Integer = 10; FUN main() DO x + y; END",
+                        Environment.NIL.getValue(),
+                        1
+                ),
+                Arguments.of("Recursion",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(15); END",
+                        BigInteger.valueOf(610),
+                        2
+                ),
+                Arguments.of("Globals",
+                        "VAR total: Integer = 0; FUN add(n: Integer) DO total = total + n; END FUN main(): Integer DO LET i: Integer = 0; WHILE i < 5 DO LET j: Integer = i * 2; add(j); i = i + 1; END RETURN total; END",
+                        BigInteger.valueOf(20),
+                        2
+                ),
+                Arguments.of("Else",
+                        "FUN sign(n: Integer): Integer DO IF n < 0 DO RETURN -1; ELSE IF n == 0 DO RETURN 0; ELSE RETURN 1; END END END FUN main(): Integer DO RETURN sign(-5) * 100 + sign(0) * 10 + sign(7); END",
+                        BigInteger.valueOf(-99),
+                        2
+                ),
+                Arguments.of("Concatenation",
+                        "VAL greeting: String = \"Hello\"; FUN main(): String DO RETURN greeting + \", \" + 'W' + \"orld\" + 1; END",
+                        "Hello, World1",
+                        1
+                ),
+                Arguments.of("Decimal",
+                        "FUN main(): Decimal DO RETURN (1.5 + 2.0) * 2.0 / 0.5; END",
+                        new BigDecimal("14.00"),
+                        1
+                ),
+                Arguments.of("Overflow",
+                        "FUN main(): Integer DO LET x: Integer = 9223372036854775807; RETURN x + 1 - 2; END",
+                        BigInteger.valueOf(Long.MAX_VALUE).subtract(BigInteger.ONE),
+                        1
+                ),
+                Arguments.of("Logical",
+                        "FUN main(): Boolean DO LET x: Integer = 0; RETURN x != 0 && x > 1 || x == 0 || FALSE; END",
+                        true,
+                        1
+                ),
+                Arguments.of("Tail Recursion",
+                        "FUN sum(n: Integer, acc: Integer): Integer DO IF n == 0 DO RETURN acc; END RETURN sum(n - 1, acc + n); END FUN main(): Integer DO RETURN sum(1000000, 0) + sum(10, 0); END",
+                        BigInteger.valueOf(500000500055L),
+                        2
+                ),
+                Arguments.of("Lists",
+                        "LIST list: Integer = [1, 5, 10]; FUN get(i: Integer): Integer DO RETURN list[i]; END FUN main(): Integer DO RETURN get(1) + get(2); END",
+                        BigInteger.valueOf(15),
+                        1
+                )
+        );
+    }
+
+    @Test
+    void testShortCircuit() {
+        // check is compiled on its first call, and side() runs once for each
+        // right operand the left one does not decide, as in the interpreter
+        Interpreter interpreter = new Interpreter(new Scope(null), false, 1);
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            Assertions.assertEquals(true, interpreter.visit(parse("FUN side(): Boolean DO print(\"side\"); RETURN TRUE; END FUN check(x: Boolean): Boolean DO LET a: Boolean = x && side(); LET b: Boolean = x || side(); RETURN a || b; END FUN main(): Boolean DO RETURN check(FALSE) && check(TRUE) && check(FALSE); END")).getValue());
+        } finally {
+            System.setOut(sysout);
+        }
+        Assertions.assertEquals(String.join(System.lineSeparator(), "side", "side", "side", ""), out.toString());
+        Assertions.assertEquals(3, interpreter.getCompilations());
+    }
+
+    @Test
+    void testTiers() {
+        Interpreter interpreter = new Interpreter(new Scope(null), false, 3);
+        Ast.Source ast = parse("VAR calls: Integer = 0; FUN count(): Integer DO calls = calls + 1; RETURN calls; END FUN main(): Integer DO RETURN count() + count() * 10 + count() * 100 + count() * 1000; END");
+        Assertions.assertEquals(BigInteger.valueOf(4321), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(1, interpreter.getCompilations());
+    }
+
+    @Test
+    void testResolved() {
+        Interpreter interpreter = new Interpreter(new Scope(null), true, 2);
+        Ast.Source ast = new Resolver().apply(parse("VAR total: Integer = 0; FUN add(n: Integer) DO total = total + n; END FUN main(): Integer DO LET i: Integer = 0; WHILE i < 10 DO add(i); i = i + 1; END RETURN total; END"));
+        Assertions.assertEquals(BigInteger.valueOf(45), interpreter.visit(ast).getValue());
+        Assertions.assertEquals(1, interpreter.getCompilations());
+    }
+
+    @Test
+    void testImmutableAssignment() {
+        Interpreter interpreter = new Interpreter(new Scope(null), false, 1);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> interpreter.visit(parse("VAL x: Integer = 1; FUN main() DO x = 2; END")));
+        Assertions.assertEquals("Immutable Variable", exception.getMessage());
+    }
+
+    @Test
+    void testCompile() {
+        Scope scope = new Scope(null);
+        Ast.Source ast = parse("FUN square(n: Integer): Integer DO RETURN n * n; END FUN first(): Integer DO RETURN list[0]; END");
+        JitCompiler compiler = new JitCompiler(scope);
+        Assertions.assertEquals(BigInteger.valueOf(49), compiler.compile(ast.getFunctions().get(0)).get().apply(Arrays.asList(Environment.create(BigInteger.valueOf(7)))).getValue());
+        Assertions.assertFalse(compiler.compile(ast.getFunctions().get(1)).isPresent());
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
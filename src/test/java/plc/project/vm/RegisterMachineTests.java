@@ -0,0 +1,130 @@
+package plc.project.vm;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import plc.project.Ast;
+import plc.project.Environment;
+import plc.project.Interpreter;
+import plc.project.Lexer;
+import plc.project.Parser;
+import plc.project.Scope;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Sources run on the register machine, checked against the interpreter.
+ */
+final class RegisterMachineTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input, Object expected) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(expected, new RegisterMachine(new Scope(null)).execute(ast).getValue());
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(ast).getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main",
+                        "FUN main(): Integer DO RETURN 0; END",
+                        BigInteger.ZERO
+                ),
+                Arguments.of("No Return",
+                        "VAR x: Integer = 1; VAR y: Integer = 10; FUN main() DO x + y; END",
+                        Environment.NIL.getValue()
+                ),
+                Arguments.of("Recursion",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(15); END",
+                        BigInteger.valueOf(610)
+                ),
+                Arguments.of("Global Loop",
+                        "VAR total: Integer = 0; FUN main(): Integer DO LET i: Integer = 0; WHILE i < 5 DO LET j: Integer = i * 2; total = total + j; i = i + 1; END RETURN total; END",
+                        BigInteger.valueOf(20)
+                ),
+                Arguments.of("Nested Blocks",
+                        "FUN main(): Integer DO LET sum: Integer = 0; LET i: Integer = 0; WHILE i < 4 DO LET j: Integer = 0; WHILE j < i DO LET k: Integer = i * j; sum = sum + k; j = j + 1; END i = i + 1; END RETURN sum; END",
+                        BigInteger.valueOf(11)
+                ),
+                Arguments.of("Else",
+                        "FUN sign(n: Integer): Integer DO IF n < 0 DO RETURN -1; ELSE IF n == 0 DO RETURN 0; ELSE RETURN 1; END END END FUN main(): Integer DO RETURN sign(-5) * 100 + sign(0) * 10 + sign(7); END",
+                        BigInteger.valueOf(-99)
+                ),
+                Arguments.of("Concatenation",
+                        "VAL greeting: String = \"Hello\"; FUN main(): String DO RETURN greeting + \", \" + \"World\" + 1; END",
+                        "Hello, World1"
+                ),
+                Arguments.of("Decimal",
+                        "FUN main(): Decimal DO RETURN (1.5 + 2.0) * 2.0 / 0.5; END",
+                        new BigDecimal("14.00")
+                ),
+                Arguments.of("Overflow",
+                        "FUN main(): Integer DO LET x: Integer = 9223372036854775807; RETURN x + 1 - 2; END",
+                        BigInteger.valueOf(Long.MAX_VALUE).subtract(BigInteger.ONE)
+                ),
+                Arguments.of("Logical",
+                        "FUN main(): Boolean DO LET x: Integer = 0; RETURN x != 0 && x > 1 || x == 0; END",
+                        true
+                ),
+                Arguments.of("Arguments",
+                        "FUN f(a: Integer, b: Integer, c: Integer): Integer DO RETURN a * 100 + b * 10 + c; END FUN main(): Integer DO LET x: Integer = 1; RETURN f(x, x + 1, f(0, 0, 3)); END",
+                        BigInteger.valueOf(123)
+                )
+        );
+    }
+
+    @Test
+    void testShortCircuit() {
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Boolean DO LET x: Integer = 0; RETURN x != 0 && 10 / x > 1 || x == 0; END").lex()).parseSource();
+        Assertions.assertEquals(true, new RegisterMachine(new Scope(null)).execute(ast).getValue());
+    }
+
+    @Test
+    void testList() {
+        Ast.Source ast = new Parser(new Lexer("LIST list: Integer = [1, 5, 10]; FUN main(): Integer DO LET i: Integer = 1; list[i] = list[i] + list[2]; RETURN list[1]; END").lex()).parseSource();
+        RegisterMachine machine = new RegisterMachine(new Scope(null));
+        Assertions.assertEquals(BigInteger.valueOf(15), machine.execute(ast).getValue());
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE, BigInteger.valueOf(15), BigInteger.TEN), machine.getScope().lookupVariable("list").getValue().getValue());
+    }
+
+    @Test
+    void testImmutableAssignment() {
+        Ast.Source ast = new Parser(new Lexer("VAL x: Integer = 1; FUN main() DO x = 2; END").lex()).parseSource();
+        Assertions.assertThrows(RuntimeException.class, () -> new RegisterMachine(new Scope(null)).execute(ast));
+    }
+
+    @Test
+    void testDump() {
+        Ast.Source ast = new Parser(new Lexer("VAR total: Integer = 0; FUN add(n: Integer): Integer DO LET x: Integer = n * 2; total = total + x; RETURN total; END FUN main(): Integer DO RETURN add(3); END").lex()).parseSource();
+        Assertions.assertEquals(String.join("\n",
+                "function <script>/0 registers=1",
+                "    0  DEFVAR    @total, #0",
+                "    1  DEFFUNC   add/1",
+                "    2  DEFFUNC   main/0",
+                "    3  CALL      r0, main/0, 0",
+                "    4  RET       r0",
+                "",
+                "function add/1 registers=3",
+                "    0  MUL       r1, r0, #2",
+                "    1  GETGLOBAL r2, @total",
+                "    2  ADD       r2, r2, r1",
+                "    3  SETGLOBAL @total, r2",
+                "    4  GETGLOBAL r2, @total",
+                "    5  RET       r2",
+                "    6  RET       #nil",
+                "",
+                "function main/0 registers=1",
+                "    0  LOADK     r0, #3",
+                "    1  CALL      r0, add/1, 1",
+                "    2  RET       r0",
+                "    3  RET       #nil",
+                ""), new RegisterCompiler().compile(ast).dump());
+    }
+
+}